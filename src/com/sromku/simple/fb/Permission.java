@@ -1,5 +1,10 @@
 package com.sromku.simple.fb;
 
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+
 import com.facebook.internal.SessionAuthorizationType;
 
 /**
@@ -147,6 +152,13 @@ public enum Permission {
 		BASIC_ADMIN
 	}
 
+	private static final Map<String, Permission> sPermissions = new HashMap<String, Permission>();
+	static {
+		for (Permission permission : values()) {
+			sPermissions.put(permission.mValue, permission);
+		}
+	}
+
 	private String mValue;
 	private SessionAuthorizationType mType;
 
@@ -163,13 +175,35 @@ public enum Permission {
 		return mType;
 	}
 
+	/**
+	 * Get the permission by its value
+	 * 
+	 * @param pemissionValue
+	 *            The value, like <code>"publish_actions"</code>
+	 * @return The permission or <code>null</code> if the value is unknown
+	 */
 	public static Permission fromValue(String pemissionValue) {
-		for (Permission permission : values()) {
-			if (permission.mValue.equals(pemissionValue)) {
-				return permission;
+		return sPermissions.get(pemissionValue);
+	}
+
+	/**
+	 * Parse the permission values, like the granted permissions of the
+	 * session. Unknown values are skipped.
+	 * 
+	 * @param values
+	 * @return The set of permissions
+	 */
+	public static EnumSet<Permission> fromValues(Collection<String> values) {
+		EnumSet<Permission> permissions = EnumSet.noneOf(Permission.class);
+		if (values != null) {
+			for (String value : values) {
+				Permission permission = sPermissions.get(value);
+				if (permission != null) {
+					permissions.add(permission);
+				}
 			}
 		}
-		return null;
+		return permissions;
 	}
 
 }
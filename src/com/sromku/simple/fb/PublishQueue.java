@@ -0,0 +1,688 @@
+package com.sromku.simple.fb;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.net.ConnectivityManager;
+import android.net.NetworkInfo;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+
+import com.facebook.FacebookRequestError;
+import com.facebook.HttpMethod;
+import com.facebook.Request;
+import com.facebook.RequestBatch;
+import com.facebook.Response;
+import com.facebook.Session;
+import com.facebook.SessionState;
+import com.sromku.simple.fb.entities.Photo;
+import com.sromku.simple.fb.entities.Publishable;
+import com.sromku.simple.fb.entities.Story;
+import com.sromku.simple.fb.listeners.OnPublishQueueListener;
+import com.sromku.simple.fb.utils.Errors;
+import com.sromku.simple.fb.utils.Logger;
+import com.sromku.simple.fb.utils.Utils;
+
+/**
+ * Persistent outbox of {@link Publishable} items. Each item is written to the
+ * app files directory before it is sent, and is removed only when Facebook
+ * accepted or rejected it. Items that failed because of network, server or
+ * session errors are retried with exponential backoff, also after the process
+ * was restarted. <br>
+ * <br>
+ * Items are sent in batches of up to {@value #MAX_BATCH_SIZE} requests. Each
+ * item has an idempotency key. An item with the key that is already queued or
+ * was published recently is ignored, so the same post is not published twice
+ * when the app enqueues it again. <br>
+ * <br>
+ * Items that failed because of the access token are parked until the token
+ * of the session changes, like after login or reauthorization. <br>
+ * <br>
+ * The queue doesn't ask for permissions. Make sure the publish permissions
+ * were granted before enqueuing. <br>
+ * <br>
+ * Each queue has its own directory, which is sent by one session only.
+ * Clients of different users must use queues of different names, and only
+ * one queue of the same name can be open in the process.
+ */
+public class PublishQueue {
+
+	public static final int MAX_BATCH_SIZE = 50;
+
+	private static final String DIRECTORY = "simple_fb_outbox";
+	private static final String ENTRY_SUFFIX = ".json";
+	private static final String COMPLETED_FILE = "completed";
+	private static final int MAX_COMPLETED = 200;
+	private static final long MIN_BACKOFF = 5 * 1000;
+	private static final long MAX_BACKOFF = 30 * 60 * 1000;
+	private static final long OFFLINE_DELAY = 60 * 1000;
+
+	private static final String KEY = "key";
+	private static final String TARGET = "target";
+	private static final String PATH = "path";
+	private static final String CREATED = "created";
+	private static final String ATTEMPTS = "attempts";
+	private static final String NEXT_ATTEMPT = "next_attempt";
+	private static final String PARAMS = "params";
+	private static final String FILES = "files";
+	private static final String PARKED_TOKEN = "parked_token";
+
+	// directories of the open queues
+	private static final Set<String> sOpenDirectories = new HashSet<String>();
+
+	private final Context mContext;
+	private final SessionManager mSessionManager;
+	private final File mDirectory;
+	private final ScheduledExecutorService mExecutor = Executors.newSingleThreadScheduledExecutor();
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+	private volatile OnPublishQueueListener mOnPublishQueueListener = null;
+	private volatile Session mWatchedSession = null;
+
+	// accessed on the executor thread only
+	private Map<String, String> mCompleted = null;
+	private ScheduledFuture<?> mScheduledFlush = null;
+	private long mScheduledTime = 0;
+
+	private final Runnable mFlush = new Runnable() {
+		@Override
+		public void run() {
+			flushImpl(false);
+		}
+	};
+
+	private final Session.StatusCallback mSessionCallback = new Session.StatusCallback() {
+		@Override
+		public void call(Session session, SessionState state, Exception exception) {
+			if (session.isOpened()) {
+				flush();
+			}
+		}
+	};
+
+	/**
+	 * Create the queue and start sending the items that were left from
+	 * previous runs.
+	 *
+	 * @param context
+	 * @param sessionManager
+	 */
+	public PublishQueue(Context context, SessionManager sessionManager) {
+		this(context, sessionManager, null);
+	}
+
+	/**
+	 * Create the queue of the given name and start sending the items that
+	 * were left from previous runs of this queue.
+	 *
+	 * @param context
+	 * @param sessionManager
+	 * @param name
+	 *            The name of the queue, like the app id or the user id, or
+	 *            <code>null</code> for the default queue
+	 * @throws IllegalStateException
+	 *             If a queue of this name is already open
+	 */
+	public PublishQueue(Context context, SessionManager sessionManager, String name) {
+		mContext = context.getApplicationContext();
+		mSessionManager = sessionManager;
+		String directory = name == null ? DIRECTORY : DIRECTORY + "_" + getFileName(name);
+		mDirectory = new File(mContext.getFilesDir(), directory);
+		synchronized (sOpenDirectories) {
+			if (!sOpenDirectories.add(mDirectory.getPath())) {
+				throw new IllegalStateException("The publish queue '" + directory + "' is already used by another client");
+			}
+		}
+		flush();
+	}
+
+	public void setOnPublishQueueListener(OnPublishQueueListener onPublishQueueListener) {
+		mOnPublishQueueListener = onPublishQueueListener;
+	}
+
+	/**
+	 * Add the item to the queue with a new idempotency key. See
+	 * {@link #enqueue(Publishable, String, String)}.
+	 *
+	 * @param publishable
+	 *            The item, like {@link com.sromku.simple.fb.entities.Feed}
+	 * @param target
+	 *            The target, like <code>"me"</code> or album id
+	 * @return The idempotency key of the item
+	 */
+	public String enqueue(Publishable publishable, String target) {
+		return enqueue(publishable, target, UUID.randomUUID().toString());
+	}
+
+	/**
+	 * Add the item to the queue. If an item with the same key is in the queue
+	 * or was published recently, then the item is ignored. <br>
+	 * <br>
+	 * The item is written to the disk on the thread of the queue, so this
+	 * method returns before the item is stored. The item survives a restart of
+	 * the process only after {@link OnPublishQueueListener#onQueued(String)}
+	 * was called. If the item couldn't be written, then
+	 * {@link OnPublishQueueListener#onException(String, Throwable)} is called
+	 * instead.
+	 *
+	 * @param publishable
+	 *            The item, like {@link com.sromku.simple.fb.entities.Feed}
+	 * @param target
+	 *            The target, like <code>"me"</code> or album id
+	 * @param key
+	 *            The idempotency key
+	 * @return The idempotency key of the item
+	 */
+	public String enqueue(Publishable publishable, final String target, final String key) {
+		// take the content now, since it may depend on the current configuration
+		final Photo spoolPhoto = publishable instanceof Photo && ((Photo) publishable).isSpoolRequired() ? (Photo) publishable : null;
+		final Bundle bundle = spoolPhoto == null ? publishable.getBundle() : null;
+		final String path = publishable instanceof Story ? ((Story) publishable).getPath(mSessionManager.getConfiguration()) : publishable.getPath();
+		mExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				if (getCompleted().containsKey(key) || getEntryFile(key).exists()) {
+					Logger.logInfo(PublishQueue.class, "Item " + key + " is already queued or published");
+					return;
+				}
+				try {
+					Bundle content = bundle;
+					if (spoolPhoto != null) {
+						// the image of stream, buffer or channel is there only after spooling
+						content = spoolPhoto.spool(mSessionManager.getCacheDir());
+					}
+					writeEntry(key, target, path, content);
+					notifyQueued(key);
+					flushImpl(false);
+				}
+				catch (IOException e) {
+					Logger.logError(PublishQueue.class, "Failed to queue item " + key, e);
+					notifyException(key, e);
+				}
+				catch (JSONException e) {
+					Logger.logError(PublishQueue.class, "Failed to queue item " + key, e);
+					notifyException(key, e);
+				}
+			}
+		});
+		return key;
+	}
+
+	/**
+	 * Send all items now, without waiting for their backoff. Call it when
+	 * the network is back or after login.
+	 */
+	public void flush() {
+		mExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				flushImpl(true);
+			}
+		});
+	}
+
+	/**
+	 * Stop the background thread. Queued items stay on the disk and will be
+	 * sent by the next instance of the queue.
+	 */
+	public void shutdown() {
+		mExecutor.shutdownNow();
+		synchronized (sOpenDirectories) {
+			sOpenDirectories.remove(mDirectory.getPath());
+		}
+		Session watchedSession = mWatchedSession;
+		if (watchedSession != null) {
+			watchedSession.removeCallback(mSessionCallback);
+		}
+	}
+
+	/**
+	 * @param force
+	 *            Send also the items that wait for backoff
+	 */
+	private void flushImpl(boolean force) {
+		List<JSONObject> entries = loadEntries();
+		if (entries.size() == 0) {
+			return;
+		}
+
+		Session session = mSessionManager.getActiveSession();
+		if (session == null || !session.isOpened() || !isConnected()) {
+			schedule(OFFLINE_DELAY);
+			return;
+		}
+
+		String accessToken = session.getAccessToken();
+		long now = System.currentTimeMillis();
+		boolean parked = false;
+		List<JSONObject> due = new ArrayList<JSONObject>();
+		for (JSONObject entry : entries) {
+			if (isParked(entry, accessToken)) {
+				parked = true;
+			}
+			else if (force || entry.optLong(NEXT_ATTEMPT) <= now) {
+				due.add(entry);
+			}
+		}
+		if (parked) {
+			watchSession(session);
+		}
+
+		for (int start = 0; start < due.size(); start += MAX_BATCH_SIZE) {
+			List<JSONObject> chunk = due.subList(start, Math.min(start + MAX_BATCH_SIZE, due.size()));
+			List<JSONObject> sent = new ArrayList<JSONObject>();
+			RequestBatch batch = new RequestBatch();
+			for (JSONObject entry : chunk) {
+				try {
+					String graphPath = entry.getString(TARGET) + "/" + entry.getString(PATH);
+					batch.add(new Request(session, graphPath, toBundle(entry), HttpMethod.POST));
+					sent.add(entry);
+				}
+				catch (Exception e) {
+					// the entry is broken, like missing attachment
+					Logger.logError(PublishQueue.class, "Failed to read queued item", e);
+					deleteEntry(entry);
+					notifyException(entry.optString(KEY), e);
+				}
+			}
+			if (batch.size() == 0) {
+				continue;
+			}
+
+			List<Response> responses = batch.executeAndWait();
+			for (int i = 0; i < sent.size(); i++) {
+				handleResponse(sent.get(i), responses.get(i), accessToken);
+			}
+		}
+
+		// schedule the next flush for the earliest pending item
+		long next = Long.MAX_VALUE;
+		for (JSONObject entry : loadEntries()) {
+			if (!isParked(entry, accessToken)) {
+				next = Math.min(next, entry.optLong(NEXT_ATTEMPT));
+			}
+		}
+		if (next != Long.MAX_VALUE) {
+			schedule(Math.max(0, next - System.currentTimeMillis()));
+		}
+	}
+
+	private void handleResponse(JSONObject entry, Response response, String accessToken) {
+		String key = entry.optString(KEY);
+		FacebookRequestError error = response.getError();
+		if (error == null) {
+			String postId = Utils.getPostId(response);
+			rememberCompleted(key, postId);
+			deleteEntry(entry);
+			notifyComplete(key, postId);
+			return;
+		}
+
+		FacebookRequestError.Category category = error.getCategory();
+		if (category == FacebookRequestError.Category.AUTHENTICATION_RETRY || category == FacebookRequestError.Category.AUTHENTICATION_REOPEN_SESSION) {
+			// retrying with the same token would fail again
+			Logger.logWarning(PublishQueue.class, "Queued item " + key + " is parked until the session changes: " + error.getErrorMessage());
+			try {
+				entry.put(PARKED_TOKEN, accessToken);
+				writeJson(getEntryFile(key), entry);
+			}
+			catch (Exception e) {
+				Logger.logError(PublishQueue.class, "Failed to update queued item " + key, e);
+			}
+			return;
+		}
+		if (!Errors.isTransient(error)) {
+			Logger.logError(PublishQueue.class, "Queued item " + key + " was rejected", error.getException());
+			deleteEntry(entry);
+			notifyException(key, error.getException());
+			return;
+		}
+
+		int attempts = entry.optInt(ATTEMPTS) + 1;
+		long backoff = Math.min(MAX_BACKOFF, MIN_BACKOFF << Math.min(attempts - 1, 20));
+		Logger.logWarning(PublishQueue.class, "Queued item " + key + " failed, retry in " + backoff + "ms: " + error.getErrorMessage());
+		try {
+			entry.remove(PARKED_TOKEN);
+			entry.put(ATTEMPTS, attempts);
+			entry.put(NEXT_ATTEMPT, System.currentTimeMillis() + backoff);
+			writeJson(getEntryFile(key), entry);
+		}
+		catch (Exception e) {
+			Logger.logError(PublishQueue.class, "Failed to update queued item " + key, e);
+		}
+	}
+
+	private static boolean isParked(JSONObject entry, String accessToken) {
+		return accessToken != null && accessToken.equals(entry.optString(PARKED_TOKEN, null));
+	}
+
+	/**
+	 * Flush again when the state of the session changes, so parked items are
+	 * sent with the new token
+	 */
+	private void watchSession(Session session) {
+		if (mWatchedSession == session) {
+			return;
+		}
+		if (mWatchedSession != null) {
+			mWatchedSession.removeCallback(mSessionCallback);
+		}
+		mWatchedSession = session;
+		session.addCallback(mSessionCallback);
+	}
+
+	private void schedule(long delay) {
+		long time = System.currentTimeMillis() + delay;
+		if (mScheduledFlush != null && !mScheduledFlush.isDone()) {
+			if (mScheduledTime <= time) {
+				return;
+			}
+			mScheduledFlush.cancel(false);
+		}
+		mScheduledTime = time;
+		mScheduledFlush = mExecutor.schedule(mFlush, delay, TimeUnit.MILLISECONDS);
+	}
+
+	private boolean isConnected() {
+		ConnectivityManager connectivityManager = (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+		if (connectivityManager == null) {
+			return true;
+		}
+		NetworkInfo networkInfo = connectivityManager.getActiveNetworkInfo();
+		return networkInfo != null && networkInfo.isConnected();
+	}
+
+	/**
+	 * Write the entry with its attachments. Attachments are copied to files
+	 * next to the entry.
+	 */
+	private void writeEntry(String key, String target, String path, Bundle bundle) throws IOException, JSONException {
+		if (!mDirectory.exists() && !mDirectory.mkdirs()) {
+			throw new IOException("Failed to create the queue directory " + mDirectory);
+		}
+		JSONObject params = new JSONObject();
+		JSONObject files = new JSONObject();
+		if (bundle != null) {
+			int index = 0;
+			for (String name : bundle.keySet()) {
+				Object value = bundle.get(name);
+				if (value instanceof byte[] || value instanceof ParcelFileDescriptor || value instanceof Bitmap) {
+					File file = new File(mDirectory, getFileName(key) + "." + (index++));
+					writeAttachment(file, value);
+					files.put(name, file.getName());
+				}
+				else if (value != null) {
+					params.put(name, String.valueOf(value));
+				}
+			}
+		}
+
+		JSONObject entry = new JSONObject();
+		entry.put(KEY, key);
+		entry.put(TARGET, target);
+		entry.put(PATH, path);
+		entry.put(CREATED, System.currentTimeMillis());
+		entry.put(ATTEMPTS, 0);
+		entry.put(NEXT_ATTEMPT, 0);
+		entry.put(PARAMS, params);
+		entry.put(FILES, files);
+		writeJson(getEntryFile(key), entry);
+	}
+
+	private static void writeAttachment(File file, Object value) throws IOException {
+		OutputStream outputStream = new FileOutputStream(file);
+		try {
+			if (value instanceof byte[]) {
+				outputStream.write((byte[]) value);
+			}
+			else if (value instanceof Bitmap) {
+				((Bitmap) value).compress(Bitmap.CompressFormat.PNG, 100, outputStream);
+			}
+			else {
+				InputStream inputStream = new ParcelFileDescriptor.AutoCloseInputStream((ParcelFileDescriptor) value);
+				try {
+					byte[] buffer = new byte[8 * 1024];
+					int read;
+					while ((read = inputStream.read(buffer)) != -1) {
+						outputStream.write(buffer, 0, read);
+					}
+				}
+				finally {
+					inputStream.close();
+				}
+			}
+		}
+		finally {
+			outputStream.close();
+		}
+	}
+
+	private Bundle toBundle(JSONObject entry) throws JSONException, FileNotFoundException {
+		Bundle bundle = new Bundle();
+		JSONObject params = entry.getJSONObject(PARAMS);
+		Iterator<?> names = params.keys();
+		while (names.hasNext()) {
+			String name = (String) names.next();
+			bundle.putString(name, params.getString(name));
+		}
+		JSONObject files = entry.getJSONObject(FILES);
+		List<ParcelFileDescriptor> descriptors = new ArrayList<ParcelFileDescriptor>();
+		boolean success = false;
+		try {
+			names = files.keys();
+			while (names.hasNext()) {
+				String name = (String) names.next();
+				File file = new File(mDirectory, files.getString(name));
+				ParcelFileDescriptor descriptor = ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
+				descriptors.add(descriptor);
+				bundle.putParcelable(name, descriptor);
+			}
+			success = true;
+		}
+		finally {
+			if (!success) {
+				// close the attachments that were opened before the failure
+				for (ParcelFileDescriptor descriptor : descriptors) {
+					try {
+						descriptor.close();
+					}
+					catch (IOException e) {
+						Logger.logError(PublishQueue.class, "Failed to close attachment", e);
+					}
+				}
+			}
+		}
+		return bundle;
+	}
+
+	private List<JSONObject> loadEntries() {
+		List<JSONObject> entries = new ArrayList<JSONObject>();
+		File[] files = mDirectory.listFiles();
+		if (files == null) {
+			return entries;
+		}
+		for (File file : files) {
+			if (!file.getName().endsWith(ENTRY_SUFFIX)) {
+				continue;
+			}
+			try {
+				entries.add(readJson(file));
+			}
+			catch (Exception e) {
+				Logger.logError(PublishQueue.class, "Failed to read queued item " + file, e);
+			}
+		}
+		Collections.sort(entries, new Comparator<JSONObject>() {
+			@Override
+			public int compare(JSONObject lhs, JSONObject rhs) {
+				long lhsCreated = lhs.optLong(CREATED);
+				long rhsCreated = rhs.optLong(CREATED);
+				return lhsCreated < rhsCreated ? -1 : (lhsCreated == rhsCreated ? 0 : 1);
+			}
+		});
+		return entries;
+	}
+
+	private void deleteEntry(JSONObject entry) {
+		JSONObject files = entry.optJSONObject(FILES);
+		if (files != null) {
+			Iterator<?> names = files.keys();
+			while (names.hasNext()) {
+				new File(mDirectory, files.optString((String) names.next())).delete();
+			}
+		}
+		getEntryFile(entry.optString(KEY)).delete();
+	}
+
+	private File getEntryFile(String key) {
+		return new File(mDirectory, getFileName(key) + ENTRY_SUFFIX);
+	}
+
+	private static String getFileName(String key) {
+		try {
+			return URLEncoder.encode(key, "UTF-8");
+		}
+		catch (UnsupportedEncodingException e) {
+			return String.valueOf(key.hashCode());
+		}
+	}
+
+	/**
+	 * The keys of recently published items and their post ids
+	 */
+	private Map<String, String> getCompleted() {
+		if (mCompleted != null) {
+			return mCompleted;
+		}
+		mCompleted = new LinkedHashMap<String, String>();
+		File file = new File(mDirectory, COMPLETED_FILE);
+		if (file.exists()) {
+			try {
+				JSONObject completed = readJson(file);
+				Iterator<?> keys = completed.keys();
+				while (keys.hasNext()) {
+					String key = (String) keys.next();
+					mCompleted.put(key, completed.getString(key));
+				}
+			}
+			catch (Exception e) {
+				Logger.logError(PublishQueue.class, "Failed to read completed items", e);
+			}
+		}
+		return mCompleted;
+	}
+
+	private void rememberCompleted(String key, String postId) {
+		Map<String, String> completed = getCompleted();
+		completed.put(key, postId);
+		Iterator<String> iterator = completed.keySet().iterator();
+		while (completed.size() > MAX_COMPLETED && iterator.hasNext()) {
+			iterator.next();
+			iterator.remove();
+		}
+		try {
+			writeJson(new File(mDirectory, COMPLETED_FILE), new JSONObject(completed));
+		}
+		catch (IOException e) {
+			Logger.logError(PublishQueue.class, "Failed to save completed items", e);
+		}
+	}
+
+	private static JSONObject readJson(File file) throws IOException, JSONException {
+		InputStream inputStream = new FileInputStream(file);
+		try {
+			byte[] bytes = new byte[(int) file.length()];
+			int offset = 0;
+			int read;
+			while (offset < bytes.length && (read = inputStream.read(bytes, offset, bytes.length - offset)) != -1) {
+				offset += read;
+			}
+			return new JSONObject(new String(bytes, 0, offset, "UTF-8"));
+		}
+		finally {
+			inputStream.close();
+		}
+	}
+
+	/**
+	 * Write to a temporary file and rename it, so a crash in the middle never
+	 * leaves a broken entry
+	 */
+	private static void writeJson(File file, JSONObject jsonObject) throws IOException {
+		File tempFile = new File(file.getParentFile(), file.getName() + ".tmp");
+		OutputStream outputStream = new FileOutputStream(tempFile);
+		try {
+			outputStream.write(jsonObject.toString().getBytes("UTF-8"));
+		}
+		finally {
+			outputStream.close();
+		}
+		if (!tempFile.renameTo(file)) {
+			tempFile.delete();
+			throw new IOException("Failed to write " + file);
+		}
+	}
+
+	private void notifyQueued(final String key) {
+		mHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				OnPublishQueueListener listener = mOnPublishQueueListener;
+				if (listener != null) {
+					listener.onQueued(key);
+				}
+			}
+		});
+	}
+
+	private void notifyComplete(final String key, final String postId) {
+		mHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				OnPublishQueueListener listener = mOnPublishQueueListener;
+				if (listener != null) {
+					listener.onComplete(key, postId);
+				}
+			}
+		});
+	}
+
+	private void notifyException(final String key, final Throwable throwable) {
+		mHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				OnPublishQueueListener listener = mOnPublishQueueListener;
+				if (listener != null) {
+					listener.onException(key, throwable);
+				}
+			}
+		});
+	}
+}
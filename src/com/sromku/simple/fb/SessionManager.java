@@ -1,15 +1,27 @@
 package com.sromku.simple.fb;
 
+import java.io.File;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 import android.app.Activity;
+import android.content.Context;
 import android.content.Intent;
+import android.os.AsyncTask;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
 
 import com.facebook.FacebookOperationCanceledException;
 import com.facebook.Session;
 import com.facebook.Session.AuthorizationRequest;
 import com.facebook.SessionState;
+import com.facebook.Settings;
 import com.facebook.UiLifecycleHelper;
 import com.facebook.widget.FacebookDialog;
 import com.facebook.widget.FacebookDialog.Callback;
@@ -20,24 +32,138 @@ import com.sromku.simple.fb.listeners.OnLoginListener;
 import com.sromku.simple.fb.listeners.OnLogoutListener;
 import com.sromku.simple.fb.listeners.OnNewPermissionsListener;
 import com.sromku.simple.fb.listeners.OnReopenSessionListener;
+import com.sromku.simple.fb.utils.AsyncTaskTransport;
 import com.sromku.simple.fb.utils.Logger;
+import com.sromku.simple.fb.utils.TransferStats;
+import com.sromku.simple.fb.utils.Transport;
 
 public class SessionManager {
 
 	private final static Class<?> TAG = SessionManager.class;
 
-	static Activity activity;
-	static SimpleFacebookConfiguration configuration;
+	private volatile Activity activity;
+	private volatile Context mContext;
+	private volatile SimpleFacebookConfiguration configuration;
+	private final Session mSession;
+	private final Executor mExecutor;
+	private volatile Transport mTransport;
+	private final TransferStats mTransferStats = new TransferStats();
 	private final SessionStatusCallback mSessionStatusCallback;
 	private UiLifecycleHelper uiLifecycleHelper;
 
+	private static Field pendingAuthorizationField = null;
+	private static boolean pendingAuthorizationFieldResolved = false;
+
 	private Callback mFacebookDialogCallback;
+	private volatile GrantedPermissions mGrantedPermissions = null;
+
+	// actions that wait for the session to be ready
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+	private final List<Runnable> mHeldActions = new ArrayList<Runnable>();
+	private int mHolds = 0;
+	private boolean mWarmingUp = false;
+	private final TokenLifecycleManager mTokenLifecycleManager;
 
+	/**
+	 * Manager of the active session of Facebook SDK
+	 * 
+	 * @param activity
+	 * @param configuration
+	 */
 	public SessionManager(Activity activity, SimpleFacebookConfiguration configuration) {
-		SessionManager.activity = activity;
-		SessionManager.configuration = configuration;
+		this(activity, configuration, null, null);
+	}
+
+	/**
+	 * Manager of its own session. The active session of Facebook SDK isn't
+	 * used or changed by this manager, so many managers with sessions of
+	 * different users can run at the same time.
+	 * 
+	 * @param context
+	 *            The activity for login and dialogs, or any other context for
+	 *            headless use. Can be <code>null</code>, then files are
+	 *            written to the temporary directory of the process.
+	 * @param configuration
+	 * @param session
+	 *            The session of this manager, or <code>null</code> to use the
+	 *            active session
+	 * @param executor
+	 *            The executor of the requests, or <code>null</code> to use the
+	 *            executor of Facebook SDK
+	 */
+	public SessionManager(Context context, SimpleFacebookConfiguration configuration, Session session, Executor executor) {
+		setConfiguration(configuration);
+		mSession = session;
+		mExecutor = executor;
+		mTransport = new AsyncTaskTransport(executor, mTransferStats);
 		mSessionStatusCallback = new SessionStatusCallback();
-		uiLifecycleHelper = new UiLifecycleHelper(activity, mSessionStatusCallback);
+		mTokenLifecycleManager = new TokenLifecycleManager(this);
+		if (context instanceof Activity) {
+			setActivity((Activity) context);
+		}
+		else if (context != null) {
+			mContext = context.getApplicationContext();
+		}
+		if (session != null) {
+			session.addCallback(mSessionStatusCallback);
+			mTokenLifecycleManager.onSessionChanged(session);
+		}
+	}
+
+	public synchronized void setActivity(Activity activity) {
+		this.activity = activity;
+		if (activity != null) {
+			mContext = activity.getApplicationContext();
+			if (uiLifecycleHelper == null) {
+				uiLifecycleHelper = new UiLifecycleHelper(activity, mSessionStatusCallback);
+			}
+		}
+	}
+
+	public synchronized void setConfiguration(SimpleFacebookConfiguration configuration) {
+		this.configuration = configuration;
+		if (configuration.getConnectionPool() != null) {
+			configuration.getConnectionPool().apply();
+		}
+	}
+
+	public SimpleFacebookConfiguration getConfiguration() {
+		return configuration;
+	}
+
+	/**
+	 * The executor of the requests of this manager
+	 * 
+	 * @return The executor or <code>null</code> if the executor of Facebook
+	 *         SDK should be used
+	 */
+	public Executor getExecutor() {
+		return mExecutor;
+	}
+
+	/**
+	 * Set the transport of the requests of this manager. The default
+	 * transport is {@link AsyncTaskTransport} on the executor of this manager.
+	 * 
+	 * @param transport
+	 */
+	public void setTransport(Transport transport) {
+		if (transport == null) {
+			throw new IllegalArgumentException("The transport can't be null");
+		}
+		mTransport = transport;
+	}
+
+	public Transport getTransport() {
+		return mTransport;
+	}
+
+	/**
+	 * The bytes of the responses that were received by the default transport
+	 * of this manager
+	 */
+	public TransferStats getTransferStats() {
+		return mTransferStats;
 	}
 
 	/**
@@ -46,10 +172,28 @@ public class SessionManager {
 	 * @param onLoginListener
 	 */
 	public void login(OnLoginListener onLoginListener) {
+		login(onLoginListener, null);
+	}
+
+	/**
+	 * @param loginConfiguration
+	 *            The configuration of this login, or <code>null</code> to use
+	 *            the current configuration
+	 */
+	private void login(final OnLoginListener onLoginListener, final SimpleFacebookConfiguration loginConfiguration) {
 		if (onLoginListener == null) {
 			Logger.logError(TAG, "OnLoginListener can't be null in -> 'login(OnLoginListener onLoginListener)' method.");
 			return;
 		}
+		if (isHeld()) {
+			runWhenReady(new Runnable() {
+				@Override
+				public void run() {
+					login(onLoginListener, loginConfiguration);
+				}
+			});
+			return;
+		}
 		if (activity == null) {
 			onLoginListener.onFail("You must initialize the SimpleFacebook instance with you current Activity.");
 			return;
@@ -68,13 +212,142 @@ public class SessionManager {
 		mSessionStatusCallback.onLoginListener = onLoginListener;
 		session.addCallback(mSessionStatusCallback);
 		if (!session.isOpened()) {
-			openSession(session, true);
+			openSession(session, true, loginConfiguration != null ? loginConfiguration : configuration);
 		}
 		else {
 			onLoginListener.onLogin();
 		}
 	}
 
+	/**
+	 * Restore the cached session on a background thread. Reading the token
+	 * cache, validating the permissions and opening the session are done
+	 * before any action runs, and actions that are executed meanwhile wait
+	 * until it finishes.
+	 */
+	public void warmUp() {
+		if (activity == null) {
+			Logger.logError(TAG, "You must initialize the SimpleFacebook instance with you current Activity.");
+			return;
+		}
+		synchronized (mHeldActions) {
+			if (mWarmingUp) {
+				return;
+			}
+			mWarmingUp = true;
+		}
+		hold();
+		final Context context = activity.getApplicationContext();
+		AsyncTask<Void, Void, Void> task = new AsyncTask<Void, Void, Void>() {
+			@Override
+			protected Void doInBackground(Void... params) {
+				try {
+					restoreSession(context);
+				}
+				catch (Exception e) {
+					Logger.logError(TAG, "Failed to restore the session", e);
+				}
+				return null;
+			}
+
+			@Override
+			protected void onPostExecute(Void result) {
+				synchronized (mHeldActions) {
+					mWarmingUp = false;
+				}
+				release();
+			}
+		};
+		// the serial executor would queue the restore behind unrelated tasks
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+			task.executeOnExecutor(mExecutor != null ? mExecutor : Settings.getExecutor());
+		}
+		else {
+			task.execute();
+		}
+	}
+
+	/**
+	 * Run the action now, or if the session isn't ready yet, then run it on
+	 * the main thread once the session is ready. The session isn't ready while
+	 * it's being restored or while its expiring token is being refreshed.
+	 * Actions that are called from other threads are posted to the main
+	 * thread.
+	 * 
+	 * @param action
+	 */
+	public void runWhenReady(final Runnable action) {
+		if (Looper.myLooper() != Looper.getMainLooper()) {
+			// actions create AsyncTasks, which need the main thread before jelly bean
+			mHandler.post(new Runnable() {
+				@Override
+				public void run() {
+					runWhenReady(action);
+				}
+			});
+			return;
+		}
+		mTokenLifecycleManager.checkExpiry();
+		synchronized (mHeldActions) {
+			if (mHolds > 0) {
+				mHeldActions.add(action);
+				return;
+			}
+		}
+		action.run();
+	}
+
+	private boolean isHeld() {
+		synchronized (mHeldActions) {
+			return mHolds > 0;
+		}
+	}
+
+	/**
+	 * Hold the actions until {@link #release()} is called
+	 */
+	void hold() {
+		synchronized (mHeldActions) {
+			mHolds++;
+		}
+	}
+
+	/**
+	 * Run the held actions if nothing else holds them
+	 */
+	void release() {
+		final List<Runnable> actions;
+		synchronized (mHeldActions) {
+			if (mHolds == 0 || --mHolds > 0 || mHeldActions.size() == 0) {
+				return;
+			}
+			actions = new ArrayList<Runnable>(mHeldActions);
+			mHeldActions.clear();
+		}
+		mHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				for (Runnable action : actions) {
+					runWhenReady(action);
+				}
+			}
+		});
+	}
+
+	private void restoreSession(Context context) {
+		Session session = getActiveSession();
+		if (mSession == null && (session == null || session.isClosed())) {
+			session = new Session.Builder(context).setApplicationId(configuration.getAppId()).build();
+			Session.setActiveSession(session);
+		}
+		if (!session.isOpened() && !session.isClosed() && canReopenSession(session)) {
+			reopenSession();
+		}
+
+		// parse the granted permissions now, so the first action will find them
+		getGrantedPermissions(session);
+	}
+
 	/**
 	 * Logout from Facebook
 	 */
@@ -111,7 +384,8 @@ public class SessionManager {
 		Session session = getActiveSession();
 		if (session == null) {
 			if (activity == null) {
-				return false;
+				// services can only open the session from the token cache
+				return reopenIfPossible && openActiveSessionFromCache();
 			}
 			session = new Session.Builder(activity.getApplicationContext()).setApplicationId(configuration.getAppId()).build();
 			Session.setActiveSession(session);
@@ -120,6 +394,9 @@ public class SessionManager {
 			return true;
 		}
 		if (reopenIfPossible && canReopenSession(session)) {
+			if (activity == null && mSession == null) {
+				return openActiveSessionFromCache();
+			}
 			reopenSession();
 			return true;
 		}
@@ -128,7 +405,8 @@ public class SessionManager {
 	}
 
 	/**
-	 * Get the current 'Active' session. <br>
+	 * Get the session of this manager, or the current 'Active' session if
+	 * this manager doesn't have its own session. <br>
 	 * <br>
 	 * <b>Important:</b> The result could be <code>null</code>. If you want to
 	 * have not null active session, then use
@@ -137,6 +415,9 @@ public class SessionManager {
 	 * @return Active session or null.
 	 */
 	public Session getActiveSession() {
+		if (mSession != null) {
+			return mSession;
+		}
 		return Session.getActiveSession();
 	}
 
@@ -167,17 +448,70 @@ public class SessionManager {
 		return getActiveSession().getPermissions();
 	}
 
+	/**
+	 * Get permissions that are accepted by user for current token. The
+	 * permissions are parsed once for each token, and then the same set is
+	 * returned until the token changes.
+	 * 
+	 * @return the unmodifiable set of accepted permissions
+	 */
+	public Set<Permission> getGrantedPermissions() {
+		return getGrantedPermissions(getActiveSession()).mPermissions;
+	}
+
+	/**
+	 * Return <code>True</code> if the permission is accepted by user for
+	 * current token
+	 * 
+	 * @param permission
+	 */
+	public boolean isGranted(Permission permission) {
+		return getGrantedPermissions().contains(permission);
+	}
+
+	private GrantedPermissions getGrantedPermissions(Session session) {
+		List<String> permissions = session != null ? session.getPermissions() : null;
+		GrantedPermissions grantedPermissions = mGrantedPermissions;
+		if (grantedPermissions == null || !grantedPermissions.isFor(session, permissions)) {
+			grantedPermissions = new GrantedPermissions(session, permissions, Permission.fromValues(permissions));
+			mGrantedPermissions = grantedPermissions;
+		}
+		return grantedPermissions;
+	}
+
 	public Activity getActivity() {
 		return activity;
 	}
 
+	/**
+	 * Get the application context. The context stays after the activity is
+	 * cleaned, and it's the only context of headless managers.
+	 * 
+	 * @return The context or <code>null</code>
+	 */
+	public Context getContext() {
+		return mContext;
+	}
+
+	/**
+	 * Get the directory for temporary files, like photos that are written
+	 * before upload
+	 */
+	public File getCacheDir() {
+		Context context = mContext;
+		if (context != null) {
+			return context.getCacheDir();
+		}
+		return new File(System.getProperty("java.io.tmpdir"));
+	}
+
 	/**
 	 * Return true if there is no pending request like: asking for permissions..
 	 * 
 	 * @return
 	 */
 	public boolean canMakeAdditionalRequest() {
-		Session session = Session.getActiveSession();
+		Session session = getActiveSession();
 		if (session != null) {
 			return !hasPendingRequest(session);
 		}
@@ -190,7 +524,7 @@ public class SessionManager {
 	 * @return
 	 */
 	public boolean containsAllPublishPermissions() {
-		if (getActiveSessionPermissions().containsAll(configuration.getPublishPermissions())) {
+		if (getGrantedPermissions().containsAll(configuration.getPublishPermissionSet())) {
 			return true;
 		}
 		return false;
@@ -202,18 +536,26 @@ public class SessionManager {
 	 * @param activity
 	 */
 	public void extendPublishPermissions() {
-		Session session = Session.getActiveSession();
+		SimpleFacebookConfiguration configuration = this.configuration;
+		Session session = getActiveSession();
 		if (hasPendingRequest(session)) {
 			Logger.logWarning(TAG, "You are trying to ask for publish permission one more time, before finishing the previous login call");
 		}
 		Session.NewPermissionsRequest request = new Session.NewPermissionsRequest(activity, configuration.getPublishPermissions());
 		session.addCallback(mSessionStatusCallback);
+		mSessionStatusCallback.setAuthorizationState(session, AuthorizationState.REQUESTING_PERMISSIONS);
 		session.requestNewPublishPermissions(request);
 	}
 
 	public void openSession(Session session, boolean isRead) {
+		openSession(session, isRead, configuration);
+	}
+
+	private void openSession(Session session, boolean isRead, SimpleFacebookConfiguration configuration) {
 		Session.OpenRequest request = new Session.OpenRequest(activity);
 		if (request != null) {
+			session.addCallback(mSessionStatusCallback);
+			mSessionStatusCallback.setAuthorizationState(session, AuthorizationState.IDLE);
 			request.setDefaultAudience(configuration.getSessionDefaultAudience());
 			request.setLoginBehavior(configuration.getSessionLoginBehavior());
 
@@ -236,6 +578,15 @@ public class SessionManager {
 				request.setPermissions(configuration.getPublishPermissions());
 				session.openForPublish(request);
 			}
+
+			/*
+			 * Session with cached token is opened right away, while its
+			 * callback is posted later, so it's pending only if it's still
+			 * opening
+			 */
+			if (SessionState.OPENING.equals(session.getState())) {
+				mSessionStatusCallback.setAuthorizationState(session, AuthorizationState.OPENING);
+			}
 		}
 	}
 
@@ -271,48 +622,52 @@ public class SessionManager {
 	 *            action.
 	 */
 	public void requestNewPermissions(Permission[] permissions, final boolean showPublish, final OnNewPermissionsListener onNewPermissionListener) {
-		configuration.addNewPermissions(permissions);
+		final SimpleFacebookConfiguration loginConfiguration = addNewPermissions(permissions).withAllPermissionsAtOnce(showPublish);
 		logout(new OnLogoutAdapter() {
 			@Override
 			public void onLogout() {
-				final boolean prevValue = configuration.mAllAtOnce;
-				configuration.mAllAtOnce = showPublish;
 				login(new OnLoginListener() {
 
 					@Override
 					public void onFail(String reason) {
-						configuration.mAllAtOnce = prevValue;
 						onNewPermissionListener.onFail(reason);
 					}
 
 					@Override
 					public void onException(Throwable throwable) {
-						configuration.mAllAtOnce = prevValue;
 						onNewPermissionListener.onException(throwable);
 					}
 
 					@Override
 					public void onThinking() {
-						configuration.mAllAtOnce = prevValue;
 						onNewPermissionListener.onThinking();
 					}
 
 					@Override
 					public void onNotAcceptingPermissions(Type type) {
-						configuration.mAllAtOnce = prevValue;
 						onNewPermissionListener.onNotAcceptingPermissions(type);
 					}
 
 					@Override
 					public void onLogin() {
-						configuration.mAllAtOnce = prevValue;
 						onNewPermissionListener.onSuccess(getAccessToken());
 					}
-				});
+				}, loginConfiguration);
 			}
 		});
 	}
 
+	/**
+	 * Replace the configuration by a new one with the added permissions.
+	 * Actions that already run keep the configuration they started with.
+	 * 
+	 * @return The new configuration
+	 */
+	private synchronized SimpleFacebookConfiguration addNewPermissions(Permission[] permissions) {
+		configuration = configuration.withNewPermissions(permissions);
+		return configuration;
+	}
+
 	/**
 	 * Call this method only if session really needs to be reopened for read or
 	 * for publish. <br>
@@ -324,22 +679,28 @@ public class SessionManager {
 	 * in {@link UnsupportedOperationException}.
 	 */
 	public void reopenSession() {
-		Session session = Session.getActiveSession();
+		SimpleFacebookConfiguration configuration = this.configuration;
+		Session session = getActiveSession();
+		if (activity == null && mSession == null) {
+			openActiveSessionFromCache();
+			return;
+		}
 		if (session != null && session.getState().equals(SessionState.CREATED_TOKEN_LOADED)) {
-			List<String> permissions = session.getPermissions();
-			List<String> publishPermissions = configuration.getPublishPermissions();
-			if (publishPermissions != null && publishPermissions.size() > 0 && permissions.containsAll(publishPermissions)) {
-				openSession(session, false);
+			Set<Permission> permissions = getGrantedPermissions(session).mPermissions;
+			if (configuration.hasPublishPermissions() && permissions.containsAll(configuration.getPublishPermissionSet())) {
+				openSession(session, false, configuration);
 			}
-			else if (permissions.containsAll(configuration.getReadPermissions())) {
-				openSession(session, true);
+			else if (permissions.containsAll(configuration.getReadPermissionSet())) {
+				openSession(session, true, configuration);
 			}
 		}
 	}
 
 	public void trackFacebookDialogPendingCall(PendingCall pendingCall, FacebookDialog.Callback callback) {
 		mFacebookDialogCallback = callback;
-		uiLifecycleHelper.trackPendingDialogCall(pendingCall);
+		if (uiLifecycleHelper != null) {
+			uiLifecycleHelper.trackPendingDialogCall(pendingCall);
+		}
 	}
 
 	public void untrackPendingCall() {
@@ -347,7 +708,12 @@ public class SessionManager {
 	}
 
 	public boolean onActivityResult(Activity activity, int requestCode, int resultCode, Intent data) {
-		uiLifecycleHelper.onActivityResult(requestCode, resultCode, data, mFacebookDialogCallback);
+		if (mSession != null) {
+			mSession.onActivityResult(activity, requestCode, resultCode, data);
+		}
+		if (uiLifecycleHelper != null) {
+			uiLifecycleHelper.onActivityResult(requestCode, resultCode, data, mFacebookDialogCallback);
+		}
 		return true;
 	}
 
@@ -372,7 +738,7 @@ public class SessionManager {
 			return null;
 		}
 
-		if (getActiveSession() == null || getActiveSession().isClosed()) {
+		if (mSession == null && (getActiveSession() == null || getActiveSession().isClosed())) {
 			Session session = new Session.Builder(activity.getApplicationContext()).setApplicationId(configuration.getAppId()).build();
 			Session.setActiveSession(session);
 		}
@@ -385,25 +751,58 @@ public class SessionManager {
 	 *         active session. Otherwise return <code>False</code>.
 	 */
 	private boolean canReopenSession(Session session) {
-		if (activity == null) {
-			Logger.logError(TAG, "You must initialize the SimpleFacebook instance with you current Activity.");
-			return false;
-		}
-
 		if (SessionState.CREATED_TOKEN_LOADED.equals(session.getState())) {
-			List<String> permissions = getActiveSessionPermissions();
-			if (permissions.containsAll(configuration.getReadPermissions())) {
+			if (getGrantedPermissions(session).mPermissions.containsAll(configuration.getReadPermissionSet())) {
 				return true;
 			}
 		}
 		return false;
 	}
 
+	/**
+	 * Open the active session from the token cache without an activity, like
+	 * in a service. The cached token is used as is, without asking for
+	 * permissions.
+	 * 
+	 * @return <code>True</code> if the session was opened
+	 */
+	private boolean openActiveSessionFromCache() {
+		if (mContext == null) {
+			Logger.logError(TAG, "You must initialize the SimpleFacebook instance with a Context.");
+			return false;
+		}
+		Session session = Session.openActiveSessionFromCache(mContext);
+		if (session == null || !session.isOpened()) {
+			return false;
+		}
+		session.addCallback(mSessionStatusCallback);
+		mTokenLifecycleManager.onSessionChanged(session);
+		return true;
+	}
+
+	/**
+	 * The authorization state is tracked by {@link SessionStatusCallback} for
+	 * every session that was opened or reauthorized by this manager. Only
+	 * sessions that were authorized outside of the library are checked by
+	 * reflection.
+	 */
 	private boolean hasPendingRequest(Session session) {
+		if (session == null) {
+			return false;
+		}
+		if (mSessionStatusCallback.isTracking(session)) {
+			return mSessionStatusCallback.isAuthorizationPending();
+		}
+		return hasPendingAuthorizationRequest(session);
+	}
+
+	private static boolean hasPendingAuthorizationRequest(Session session) {
+		Field field = getPendingAuthorizationField();
+		if (field == null) {
+			return false;
+		}
 		try {
-			Field f = session.getClass().getDeclaredField("pendingAuthorizationRequest");
-			f.setAccessible(true);
-			AuthorizationRequest authorizationRequest = (AuthorizationRequest) f.get(session);
+			AuthorizationRequest authorizationRequest = (AuthorizationRequest) field.get(session);
 			if (authorizationRequest != null) {
 				return true;
 			}
@@ -414,12 +813,43 @@ public class SessionManager {
 		return false;
 	}
 
+	private static synchronized Field getPendingAuthorizationField() {
+		if (!pendingAuthorizationFieldResolved) {
+			pendingAuthorizationFieldResolved = true;
+			try {
+				pendingAuthorizationField = Session.class.getDeclaredField("pendingAuthorizationRequest");
+				pendingAuthorizationField.setAccessible(true);
+			}
+			catch (Exception e) {
+				Logger.logWarning(TAG, "Can't check pending authorization of sessions that were opened outside of the library");
+				pendingAuthorizationField = null;
+			}
+		}
+		return pendingAuthorizationField;
+	}
+
+	/**
+	 * The authorization flow of the session. The state moves from
+	 * <code>IDLE</code> to <code>OPENING</code> or
+	 * <code>REQUESTING_PERMISSIONS</code> when the request is sent, and back
+	 * to <code>IDLE</code> on the first state change that is not
+	 * <code>OPENING</code>, since by then Facebook already finished the
+	 * authorization.
+	 */
+	enum AuthorizationState {
+		IDLE,
+		OPENING,
+		REQUESTING_PERMISSIONS
+	}
+
 	public class SessionStatusCallback implements Session.StatusCallback {
-		private boolean askPublishPermissions = false;
-		private boolean doOnLogin = false;
-		private OnReopenSessionListener onReopenSessionListener = null;
-		OnLoginListener onLoginListener = null;
-		OnLogoutListener onLogoutListener = null;
+		private volatile boolean askPublishPermissions = false;
+		private volatile boolean doOnLogin = false;
+		private volatile Session trackedSession = null;
+		private volatile AuthorizationState authorizationState = AuthorizationState.IDLE;
+		private volatile OnReopenSessionListener onReopenSessionListener = null;
+		volatile OnLoginListener onLoginListener = null;
+		volatile OnLogoutListener onLogoutListener = null;
 
 		public void setOnReopenSessionListener(OnReopenSessionListener onReopenSessionListener) {
 			this.onReopenSessionListener = onReopenSessionListener;
@@ -427,6 +857,10 @@ public class SessionManager {
 
 		@Override
 		public void call(Session session, SessionState state, Exception exception) {
+			setAuthorizationState(session, SessionState.OPENING.equals(state) ? AuthorizationState.OPENING : AuthorizationState.IDLE);
+			mGrantedPermissions = null;
+			mTokenLifecycleManager.onSessionChanged(session);
+
 			List<String> permissions = getActiveSessionPermissions();
 			if (exception != null) {
 				if (exception instanceof FacebookOperationCanceledException && !SessionState.OPENED_TOKEN_UPDATED.equals(state)) {
@@ -542,6 +976,19 @@ public class SessionManager {
 			askPublishPermissions = ask;
 		}
 
+		void setAuthorizationState(Session session, AuthorizationState state) {
+			authorizationState = state;
+			trackedSession = session;
+		}
+
+		boolean isTracking(Session session) {
+			return trackedSession == session;
+		}
+
+		boolean isAuthorizationPending() {
+			return authorizationState != AuthorizationState.IDLE;
+		}
+
 		private void notAcceptedPermission(Permission.Type type) {
 			if (onLoginListener != null) {
 				onLoginListener.onNotAcceptingPermissions(type);
@@ -549,6 +996,27 @@ public class SessionManager {
 		}
 	}
 
+	/**
+	 * Parsed permissions of one token. The sdk keeps the permissions list in
+	 * the token and replaces it with the token, also when new permissions
+	 * are granted to the same token string, so the list itself is the key.
+	 */
+	private static class GrantedPermissions {
+		private final Session mSession;
+		private final List<String> mSource;
+		private final Set<Permission> mPermissions;
+
+		GrantedPermissions(Session session, List<String> source, EnumSet<Permission> permissions) {
+			mSession = session;
+			mSource = source;
+			mPermissions = Collections.unmodifiableSet(permissions);
+		}
+
+		boolean isFor(Session session, List<String> source) {
+			return mSession == session && mSource == source;
+		}
+	}
+
 	private class OnLogoutAdapter implements OnLogoutListener {
 
 		@Override
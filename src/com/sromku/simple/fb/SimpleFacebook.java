@@ -1,57 +1,101 @@
 package com.sromku.simple.fb;
 
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
 
 import android.app.Activity;
+import android.content.Context;
 import android.content.Intent;
 import android.os.Bundle;
 import android.util.EventLog.Event;
 
+import com.facebook.AccessToken;
 import com.facebook.AppEventsLogger;
+import com.facebook.NonCachingTokenCachingStrategy;
 import com.facebook.Session;
 import com.sromku.simple.fb.Permission.Page;
 import com.sromku.simple.fb.actions.DeleteRequestAction;
+import com.sromku.simple.fb.actions.DeleteRequestsAction;
 import com.sromku.simple.fb.actions.GetAction;
 import com.sromku.simple.fb.actions.GetAppRequestsAction;
 import com.sromku.simple.fb.actions.GetFriendsAction;
+import com.sromku.simple.fb.actions.GetFriendsTableAction;
+import com.sromku.simple.fb.actions.GetPicturesAction;
 import com.sromku.simple.fb.actions.GetPhotosAction;
 import com.sromku.simple.fb.actions.GetProfileAction;
 import com.sromku.simple.fb.actions.InviteAction;
 import com.sromku.simple.fb.actions.PublishAction;
+import com.sromku.simple.fb.actions.PublishAllAction;
 import com.sromku.simple.fb.actions.PublishFeedDialogAction;
+import com.sromku.simple.fb.actions.UploadPhotosAction;
+import com.sromku.simple.fb.actions.UploadVideoAction;
 import com.sromku.simple.fb.entities.Album;
 import com.sromku.simple.fb.entities.Feed;
+import com.sromku.simple.fb.entities.FriendTable;
 import com.sromku.simple.fb.entities.Photo;
 import com.sromku.simple.fb.entities.Profile;
 import com.sromku.simple.fb.entities.Profile.Properties;
 import com.sromku.simple.fb.entities.Publishable;
 import com.sromku.simple.fb.entities.Story;
+import com.sromku.simple.fb.entities.Video;
 import com.sromku.simple.fb.listeners.OnActionListener;
 import com.sromku.simple.fb.listeners.OnAppRequestsListener;
+import com.sromku.simple.fb.listeners.OnDeleteAllListener;
 import com.sromku.simple.fb.listeners.OnDeleteListener;
 import com.sromku.simple.fb.listeners.OnFriendsListener;
+import com.sromku.simple.fb.listeners.OnFriendsTableListener;
 import com.sromku.simple.fb.listeners.OnInviteListener;
 import com.sromku.simple.fb.listeners.OnLoginListener;
 import com.sromku.simple.fb.listeners.OnLogoutListener;
 import com.sromku.simple.fb.listeners.OnNewPermissionsListener;
 import com.sromku.simple.fb.listeners.OnPhotosListener;
+import com.sromku.simple.fb.listeners.OnPicturesListener;
 import com.sromku.simple.fb.listeners.OnProfileListener;
+import com.sromku.simple.fb.listeners.OnPublishAllListener;
 import com.sromku.simple.fb.listeners.OnPublishListener;
+import com.sromku.simple.fb.listeners.OnUploadListener;
+import com.sromku.simple.fb.utils.AsyncTaskTransport;
+import com.sromku.simple.fb.utils.ConnectionTransport;
+import com.sromku.simple.fb.utils.FriendsSearchIndex;
+import com.sromku.simple.fb.utils.PictureAttributes;
+import com.sromku.simple.fb.utils.PictureResolver;
+import com.sromku.simple.fb.utils.QueryOptions;
+import com.sromku.simple.fb.utils.TransferStats;
+import com.sromku.simple.fb.utils.Transport;
+import com.sromku.simple.fb.utils.UserRegistry;
 
 /**
- * Simple Facebook SDK which wraps original Facebook SDK
+ * Simple Facebook SDK which wraps original Facebook SDK <br>
+ * <br>
+ * <b>Threads:</b><br>
+ * The methods of this class can be called from any thread. Each call creates
+ * its own action, which takes a snapshot of the configuration when it's
+ * created, thus changes of the configuration or new permissions don't affect
+ * actions that already run. Actions that are called from other threads are
+ * started on the main thread, and the listeners are called on the main
+ * thread, unless the transport calls them on its own threads like
+ * {@link ConnectionTransport} does. <br>
+ * Login, logout and the methods that open dialogs should be called from the
+ * main thread, since they work with the current activity.
  * 
  * @author sromku
  */
 public class SimpleFacebook {
-	private static SimpleFacebook mInstance = null;
-	private static SimpleFacebookConfiguration mConfiguration = new SimpleFacebookConfiguration.Builder().build();
+	private static volatile SimpleFacebook mInstance = null;
+	private static volatile SimpleFacebookConfiguration mConfiguration = new SimpleFacebookConfiguration.Builder().build();
 
-	private static Activity mActivity;
-	private static SessionManager mSessionManager = null;
+	private final SessionManager mSessionManager;
 
-	private SimpleFacebook() {
+	private volatile UserRegistry mUserRegistry = null;
+	private volatile PictureResolver mPictureResolver = new PictureResolver();
+	private final Map<String, PublishQueue> mPublishQueues = new HashMap<String, PublishQueue>();
+
+	private SimpleFacebook(SessionManager sessionManager) {
+		mSessionManager = sessionManager;
 	}
 
 	/**
@@ -64,13 +108,11 @@ public class SimpleFacebook {
 	 * @param activity
 	 *            Activity
 	 */
-	public static void initialize(Activity activity) {
+	public static synchronized void initialize(Activity activity) {
 		if (mInstance == null) {
-			mInstance = new SimpleFacebook();
-			mSessionManager = new SessionManager(mActivity, mConfiguration);
+			mInstance = new SimpleFacebook(new SessionManager(activity, mConfiguration));
 		}
-		mActivity = activity;
-		SessionManager.activity = activity;
+		mInstance.mSessionManager.setActivity(activity);
 	}
 
 	/**
@@ -93,12 +135,7 @@ public class SimpleFacebook {
 	 * @return {@link SimpleFacebook} instance
 	 */
 	public static SimpleFacebook getInstance(Activity activity) {
-		if (mInstance == null) {
-			mInstance = new SimpleFacebook();
-			mSessionManager = new SessionManager(activity, mConfiguration);
-		}
-		mActivity = activity;
-		SessionManager.activity = activity;
+		initialize(activity);
 		return mInstance;
 	}
 
@@ -114,6 +151,70 @@ public class SimpleFacebook {
 		return mInstance;
 	}
 
+	/**
+	 * Create a new client with its own session, configuration, executor and
+	 * caches. Unlike {@link #getInstance(Activity)}, the client doesn't use
+	 * or change the active session of Facebook SDK, so clients of different
+	 * users can run actions at the same time.
+	 * 
+	 * <pre>
+	 * Session session = new Session.Builder(context).setTokenCachingStrategy(userTokenCache).build();
+	 * SimpleFacebook client = SimpleFacebook.newInstance(activity, configuration, session, executor);
+	 * </pre>
+	 * 
+	 * @param context
+	 *            The activity for login and dialogs, or the application
+	 *            context for headless client. Can be <code>null</code>.
+	 * @param configuration
+	 *            The configuration of the client
+	 * @param session
+	 *            The session of the client
+	 * @param executor
+	 *            The executor of the requests of this client, or
+	 *            <code>null</code> to use the executor of Facebook SDK
+	 * @return The new client
+	 */
+	public static SimpleFacebook newInstance(Context context, SimpleFacebookConfiguration configuration, Session session, Executor executor) {
+		if (session == null) {
+			throw new IllegalArgumentException("The session of the client can't be null");
+		}
+		return new SimpleFacebook(new SessionManager(context, configuration, session, executor));
+	}
+
+	/**
+	 * Create a headless client for the given access token. The client doesn't
+	 * need an activity, so it can be used by services and background jobs to
+	 * get, publish and delete. Dialogs and login aren't available, and publish
+	 * permissions aren't asked, thus the token should already have them. <br>
+	 * <br>
+	 * The token isn't cached by the client.
+	 * 
+	 * <pre>
+	 * SimpleFacebook client = SimpleFacebook.newInstance(getApplicationContext(), configuration, accessToken, null);
+	 * client.getProfile(onProfileListener);
+	 * </pre>
+	 * 
+	 * @param context
+	 *            The application context, or <code>null</code> if the app id
+	 *            is set in the configuration
+	 * @param configuration
+	 *            The configuration of the client
+	 * @param accessToken
+	 *            The access token of the user
+	 * @param executor
+	 *            The executor of the requests of this client, or
+	 *            <code>null</code> to use the executor of Facebook SDK
+	 * @return The new client
+	 */
+	public static SimpleFacebook newInstance(Context context, SimpleFacebookConfiguration configuration, String accessToken, Executor executor) {
+		if (accessToken == null) {
+			throw new IllegalArgumentException("The access token of the client can't be null");
+		}
+		Session session = new Session.Builder(context).setApplicationId(configuration.getAppId()).setTokenCachingStrategy(new NonCachingTokenCachingStrategy()).build();
+		session.open(AccessToken.createFromExistingAccessToken(accessToken, null, null, null, null), null);
+		return newInstance(context, configuration, session, executor);
+	}
+
 	/**
 	 * Set facebook configuration. <b>Make sure</b> to set a configuration
 	 * before first actual use of this library like (login, getProfile, etc..).
@@ -121,20 +222,162 @@ public class SimpleFacebook {
 	 * @param configuration
 	 *            The configuration of this library
 	 */
-	public static void setConfiguration(SimpleFacebookConfiguration configuration) {
+	public static synchronized void setConfiguration(SimpleFacebookConfiguration configuration) {
 		mConfiguration = configuration;
-		SessionManager.configuration = configuration;
+		if (mInstance != null) {
+			mInstance.mSessionManager.setConfiguration(configuration);
+		}
 	}
 
 	/**
-	 * Get configuration
+	 * Get configuration of the default instance, including the permissions
+	 * that were requested in a runtime
 	 * 
 	 * @return
 	 */
 	public static SimpleFacebookConfiguration getConfiguration() {
+		SimpleFacebook instance = mInstance;
+		if (instance != null) {
+			return instance.mSessionManager.getConfiguration();
+		}
 		return mConfiguration;
 	}
 
+	/**
+	 * Get configuration of this client
+	 * 
+	 * @return
+	 */
+	public SimpleFacebookConfiguration getClientConfiguration() {
+		return mSessionManager.getConfiguration();
+	}
+
+	/**
+	 * Restore the cached session on a background thread. Call it once when
+	 * the application starts, after {@link #initialize(Activity)} or
+	 * {@link #getInstance(Activity)}, to keep the loading of the token cache
+	 * off the UI thread. Actions that are called before the session is
+	 * restored will wait for it.
+	 */
+	public void warmUp() {
+		mSessionManager.warmUp();
+	}
+
+	/**
+	 * Set the transport of the requests of this client, like
+	 * {@link ConnectionTransport} for clients that run in services and worker
+	 * threads. The default is {@link AsyncTaskTransport}.
+	 * 
+	 * @param transport
+	 */
+	public void setTransport(Transport transport) {
+		mSessionManager.setTransport(transport);
+	}
+
+	public Transport getTransport() {
+		return mSessionManager.getTransport();
+	}
+
+	/**
+	 * The bytes of the responses of this client, as received and after the
+	 * decompression. Pass it to a custom transport to count its responses
+	 * too:
+	 * 
+	 * <pre>
+	 * client.setTransport(new ConnectionTransport(executor, client.getTransferStats()));
+	 * </pre>
+	 */
+	public TransferStats getTransferStats() {
+		return mSessionManager.getTransferStats();
+	}
+
+	/**
+	 * Set the registry of users that will be shared between responses. Once
+	 * set, the same author of photos, albums and app requests is the same
+	 * {@link com.sromku.simple.fb.entities.User User} instance in all
+	 * responses, and already fetched profiles (by {@link #getProfile} and
+	 * {@link #getFriends}) are reused as the author. <br>
+	 * <br>
+	 * Pass <code>null</code> to use a new registry for each response, which is
+	 * the default.
+	 * 
+	 * @param userRegistry
+	 *            The registry or <code>null</code>
+	 */
+	public void setUserRegistry(UserRegistry userRegistry) {
+		mUserRegistry = userRegistry;
+	}
+
+	/**
+	 * Get the registry of users that is shared between responses
+	 * 
+	 * @return The registry or <code>null</code> if not set
+	 */
+	public UserRegistry getUserRegistry() {
+		return mUserRegistry;
+	}
+
+	/**
+	 * Set the cache of picture urls that is used by
+	 * {@link #getPictures(Collection, PictureAttributes, OnPicturesListener)}
+	 * 
+	 * @param pictureResolver
+	 */
+	public void setPictureResolver(PictureResolver pictureResolver) {
+		mPictureResolver = pictureResolver;
+	}
+
+	public PictureResolver getPictureResolver() {
+		return mPictureResolver;
+	}
+
+	/**
+	 * Get the persistent outbox for publishing. Items are kept on the disk
+	 * until they are published, and are retried after network failures and
+	 * process restarts:
+	 * 
+	 * <pre>
+	 * PublishQueue publishQueue = mSimpleFacebook.getPublishQueue();
+	 * publishQueue.setOnPublishQueueListener(onPublishQueueListener);
+	 * String key = publishQueue.enqueue(feed, &quot;me&quot;);
+	 * </pre>
+	 * 
+	 * The default instance has the default queue, and clients of
+	 * {@link #newInstance(Context, SimpleFacebookConfiguration, Session, Executor)
+	 * newInstance(...)} have the queue of their app id. Use
+	 * {@link #getPublishQueue(String)} for clients of different users of the
+	 * same app.
+	 * 
+	 * @return The publish queue
+	 */
+	public PublishQueue getPublishQueue() {
+		return getPublishQueue(this == mInstance ? null : mSessionManager.getConfiguration().getAppId());
+	}
+
+	/**
+	 * Get the persistent outbox of the given name. Items of the queue are
+	 * published only by this client.
+	 * 
+	 * @param name
+	 *            The name of the queue, like the user id, or
+	 *            <code>null</code> for the default queue
+	 * @return The publish queue
+	 * @throws IllegalStateException
+	 *             If another client already uses the queue of this name
+	 */
+	public synchronized PublishQueue getPublishQueue(String name) {
+		PublishQueue publishQueue = mPublishQueues.get(name);
+		if (publishQueue == null) {
+			Context context = mSessionManager.getContext();
+			if (context == null) {
+				throw new IllegalStateException("The publish queue needs a Context to store the pending items");
+			}
+			publishQueue = new PublishQueue(context, mSessionManager, name);
+			mPublishQueues.put(name, publishQueue);
+		}
+		return publishQueue;
+	}
+
 	/**
 	 * Login to Facebook
 	 * 
@@ -183,6 +426,7 @@ public class SimpleFacebook {
 			}
 		};
 		getAction.setActionListener(onActionListener);
+		getAction.setUserRegistry(mUserRegistry);
 		getAction.setTarget(entityId);
 		getAction.setEdge(edge);
 		getAction.execute();
@@ -195,8 +439,23 @@ public class SimpleFacebook {
 	 *            The callback listener.
 	 */
 	public void getAppRequests(OnAppRequestsListener onAppRequestsListener) {
+		getAppRequests(null, onAppRequestsListener);
+	}
+
+	/**
+	 * Get app requests made by me to others or by others to me, filtered and
+	 * limited on the server side by query options.
+	 * 
+	 * @param queryOptions
+	 *            The {@link QueryOptions} or <code>null</code> for default.
+	 * @param onAppRequestsListener
+	 *            The callback listener.
+	 */
+	public void getAppRequests(QueryOptions queryOptions, OnAppRequestsListener onAppRequestsListener) {
 		GetAppRequestsAction getAppRequestsAction = new GetAppRequestsAction(mSessionManager);
+		getAppRequestsAction.setQueryOptions(queryOptions);
 		getAppRequestsAction.setActionListener(onAppRequestsListener);
+		getAppRequestsAction.setUserRegistry(mUserRegistry);
 		getAppRequestsAction.execute();
 	}
 
@@ -241,12 +500,69 @@ public class SimpleFacebook {
 	 * </pre>
 	 */
 	public void getFriends(Properties properties, OnFriendsListener onFriendsListener) {
+		getFriends(properties, null, onFriendsListener);
+	}
+
+	/**
+	 * Get my friends from facebook and add them to the search index. Each
+	 * page of friends that arrives by {@link OnFriendsListener#getNext()} is
+	 * added to the same index, so it can be used for instant search in friend
+	 * picker:
+	 * 
+	 * <pre>
+	 * FriendsSearchIndex searchIndex = new FriendsSearchIndex();
+	 * mSimpleFacebook.getFriends(properties, searchIndex, onFriendsListener);
+	 * ...
+	 * List&lt;Profile&gt; matched = searchIndex.search(&quot;jo&quot;);
+	 * </pre>
+	 * 
+	 * @param properties
+	 *            The {@link Properties} or <code>null</code> for default.
+	 * @param searchIndex
+	 *            The index to update. Could be <code>null</code>
+	 * @param onFriendsListener
+	 *            The callback listener.
+	 */
+	public void getFriends(Properties properties, FriendsSearchIndex searchIndex, OnFriendsListener onFriendsListener) {
 		GetFriendsAction getFriendsAction = new GetFriendsAction(mSessionManager);
 		getFriendsAction.setProperties(properties);
+		getFriendsAction.setSearchIndex(searchIndex);
 		getFriendsAction.setActionListener(onFriendsListener);
+		getFriendsAction.setUserRegistry(mUserRegistry);
 		getFriendsAction.execute();
 	}
 
+	/**
+	 * Get my friends as {@link FriendTable}. Unlike
+	 * {@link #getFriends(Properties, OnFriendsListener)}, the friends are
+	 * stored by columns of the requested properties, which makes filtering,
+	 * sorting and grouping of large friends lists fast and light on memory.
+	 * 
+	 * <pre>
+	 * Properties properties = new Properties.Builder().add(Properties.ID).add(Properties.NAME).add(Properties.GENDER).build();
+	 * mSimpleFacebook.getFriendsTable(properties, new OnFriendsTableListener() {
+	 * 	&#064;Override
+	 * 	public void onComplete(FriendTable friends) {
+	 * 		FriendTable females = friends.whereEquals(Properties.GENDER, &quot;female&quot;).sortBy(Properties.NAME, true);
+	 * 	}
+	 * });
+	 * </pre>
+	 * 
+	 * @param properties
+	 *            The {@link Properties} to store as columns. If
+	 *            <code>null</code>, then <em>id</em> and <em>name</em> are
+	 *            used.
+	 * @param onFriendsTableListener
+	 *            The callback listener.
+	 */
+	public void getFriendsTable(Properties properties, OnFriendsTableListener onFriendsTableListener) {
+		GetFriendsTableAction getFriendsTableAction = new GetFriendsTableAction(mSessionManager);
+		getFriendsTableAction.setProperties(properties);
+		getFriendsTableAction.setActionListener(onFriendsTableListener);
+		getFriendsTableAction.setUserRegistry(mUserRegistry);
+		getFriendsTableAction.execute();
+	}
+
 	/**
 	 * Get my photos.
 	 * 
@@ -257,9 +573,7 @@ public class SimpleFacebook {
 	 *            The callback listener.
 	 */
 	public void getPhotos(OnPhotosListener onPhotosListener) {
-		GetPhotosAction getPhotosAction = new GetPhotosAction(mSessionManager);
-		getPhotosAction.setActionListener(onPhotosListener);
-		getPhotosAction.execute();
+		getPhotos("me", null, onPhotosListener);
 	}
 
 	/**
@@ -282,8 +596,31 @@ public class SimpleFacebook {
 	 *            The callback listener.
 	 */
 	public void getPhotos(String entityId, OnPhotosListener onPhotosListener) {
+		getPhotos(entityId, null, onPhotosListener);
+	}
+
+	/**
+	 * Get photos of specific entity, filtered and limited on the server side
+	 * by query options. For example, the last 10 photos since some date:
+	 * 
+	 * <pre>
+	 * QueryOptions queryOptions = new QueryOptions.Builder().setLimit(10).setSince(date).build();
+	 * mSimpleFacebook.getPhotos(albumId, queryOptions, onPhotosListener);
+	 * </pre>
+	 * 
+	 * @param entityId
+	 *            Album, Event, Page, Profile
+	 * @param queryOptions
+	 *            The {@link QueryOptions} or <code>null</code> for default.
+	 * @param onPhotosListener
+	 *            The callback listener.
+	 * @see #getPhotos(String, OnPhotosListener)
+	 */
+	public void getPhotos(String entityId, QueryOptions queryOptions, OnPhotosListener onPhotosListener) {
 		GetPhotosAction getPhotosAction = new GetPhotosAction(mSessionManager);
+		getPhotosAction.setQueryOptions(queryOptions);
 		getPhotosAction.setActionListener(onPhotosListener);
+		getPhotosAction.setUserRegistry(mUserRegistry);
 		getPhotosAction.setTarget(entityId);
 		getPhotosAction.execute();
 	}
@@ -340,9 +677,41 @@ public class SimpleFacebook {
 		GetProfileAction getProfileAction = new GetProfileAction(mSessionManager);
 		getProfileAction.setProperties(properties);
 		getProfileAction.setActionListener(onProfileListener);
+		getProfileAction.setUserRegistry(mUserRegistry);
 		getProfileAction.execute();
 	}
 
+	/**
+	 * Get the profile pictures of many users, like avatars of the friends
+	 * list. Urls that were already resolved with the same attributes are taken
+	 * from {@link PictureResolver}, and all others are requested together.
+	 * 
+	 * <pre>
+	 * PictureAttributes pictureAttributes = Attributes.createPictureAttributes();
+	 * pictureAttributes.setType(PictureType.SQUARE);
+	 * pictureAttributes.setWidth(100);
+	 * pictureAttributes.setHeight(100);
+	 * mSimpleFacebook.getPictures(friendIds, pictureAttributes, onPicturesListener);
+	 * </pre>
+	 * 
+	 * @param userIds
+	 *            The user ids
+	 * @param pictureAttributes
+	 *            The picture attributes or <code>null</code> for default
+	 *            picture
+	 * @param onPicturesListener
+	 *            The callback listener. The result maps user id to picture
+	 *            url.
+	 */
+	public void getPictures(Collection<String> userIds, PictureAttributes pictureAttributes, OnPicturesListener onPicturesListener) {
+		GetPicturesAction getPicturesAction = new GetPicturesAction(mSessionManager);
+		getPicturesAction.setIds(userIds);
+		getPicturesAction.setPictureAttributes(pictureAttributes);
+		getPicturesAction.setPictureResolver(mPictureResolver);
+		getPicturesAction.setOnPicturesListener(onPicturesListener);
+		getPicturesAction.execute();
+	}
+
 	/**
 	 * 
 	 * Publish {@link Feed} on the wall.<br>
@@ -473,6 +842,49 @@ public class SimpleFacebook {
 		publish((Publishable) photo, "me", onPublishListener);
 	}
 
+	/**
+	 * Publish video to my videos.<br>
+	 * <br>
+	 * The video is uploaded in chunks, and the progress is reported by
+	 * {@link OnUploadListener#onProgress(long, long)}. If the upload fails in
+	 * the middle, it can be continued by {@link OnUploadListener#resume()}.<br>
+	 * <br>
+	 * 
+	 * <b>Permission:</b><br>
+	 * {@link Permission#PUBLISH_ACTION}<br>
+	 * 
+	 * @param video
+	 *            The video to upload
+	 * @param onUploadListener
+	 *            The callback listener
+	 */
+	public void publish(Video video, OnUploadListener onUploadListener) {
+		publish(video, "me", onUploadListener);
+	}
+
+	/**
+	 * Publish video to the target, like page or group.<br>
+	 * <br>
+	 * 
+	 * <b>Permission:</b><br>
+	 * {@link Permission#PUBLISH_ACTION}<br>
+	 * 
+	 * @param video
+	 *            The video to upload
+	 * @param target
+	 *            The id of the target
+	 * @param onUploadListener
+	 *            The callback listener
+	 * @see #publish(Video, OnUploadListener)
+	 */
+	public void publish(Video video, String target, OnUploadListener onUploadListener) {
+		UploadVideoAction uploadVideoAction = new UploadVideoAction(mSessionManager);
+		uploadVideoAction.setVideo(video);
+		uploadVideoAction.setTarget(target);
+		uploadVideoAction.setOnUploadListener(onUploadListener);
+		uploadVideoAction.execute();
+	}
+
 	/**
 	 * Publish any publishable entity
 	 * 
@@ -487,6 +899,51 @@ public class SimpleFacebook {
 		publishAction.execute();
 	}
 
+	/**
+	 * Publish many items, like photos to an album, in Graph batches. The
+	 * permissions are checked once for all items, and the result of each
+	 * item is reported by {@link OnPublishAllListener}.
+	 * 
+	 * @param publishables
+	 *            The items to publish
+	 * @param target
+	 *            The target, like <code>"me"</code> or album id
+	 * @param onPublishAllListener
+	 *            The callback listener
+	 */
+	public void publishAll(List<? extends Publishable> publishables, String target, OnPublishAllListener onPublishAllListener) {
+		PublishAllAction publishAllAction = new PublishAllAction(mSessionManager);
+		publishAllAction.setPublishables(publishables);
+		publishAllAction.setTarget(target);
+		publishAllAction.setOnPublishAllListener(onPublishAllListener);
+		publishAllAction.execute();
+	}
+
+	/**
+	 * Upload many photos, like a whole album, over parallel connections. The
+	 * number of parallel uploads is tuned by the measured throughput, and the
+	 * progress of the whole set is reported by
+	 * {@link OnPublishAllListener#onProgress(long, long)}.<br>
+	 * <br>
+	 * 
+	 * <b>Permission:</b><br>
+	 * {@link Permission#PUBLISH_STREAM}<br>
+	 * 
+	 * @param photos
+	 *            The photos to upload
+	 * @param albumId
+	 *            The album id or <code>"me"</code> for application album
+	 * @param onPublishAllListener
+	 *            The callback listener
+	 */
+	public void uploadPhotos(List<Photo> photos, String albumId, OnPublishAllListener onPublishAllListener) {
+		UploadPhotosAction uploadPhotosAction = new UploadPhotosAction(mSessionManager);
+		uploadPhotosAction.setPublishables(photos);
+		uploadPhotosAction.setTarget(albumId);
+		uploadPhotosAction.setOnPublishAllListener(onPublishAllListener);
+		uploadPhotosAction.execute();
+	}
+
 	/**
 	 * Open invite dialog and can add multiple friends
 	 * 
@@ -571,6 +1028,27 @@ public class SimpleFacebook {
 		deleteRequestAction.execute();
 	}
 
+	/**
+	 * 
+	 * Deletes many apprequests, like all requests returned by
+	 * {@link #getAppRequests(OnAppRequestsListener)}. The ids are sent in
+	 * Graph batches of up to 50 requests, which run concurrently.<br>
+	 * <br>
+	 * 
+	 * @param requestIds
+	 *            The request ids to be deleted. Note that they should have
+	 *            the form {USERID}_{REQUESTID}
+	 * @param onDeleteAllListener
+	 *            The listener for deletion action. Reports the result of each
+	 *            id and then the list of deleted ids.
+	 */
+	public void deleteRequests(Collection<String> requestIds, OnDeleteAllListener onDeleteAllListener) {
+		DeleteRequestsAction deleteRequestsAction = new DeleteRequestsAction(mSessionManager);
+		deleteRequestsAction.setRequestIds(requestIds);
+		deleteRequestsAction.setOnDeleteAllListener(onDeleteAllListener);
+		deleteRequestsAction.execute();
+	}
+
 	/**
 	 * 
 	 * Requests any new permission in a runtime. <br>
@@ -617,12 +1095,9 @@ public class SimpleFacebook {
 	 *         otherwise return <code>False</code>
 	 */
 	public boolean isAllPermissionsGranted() {
-		List<String> grantedPermissions = getGrantedPermissions();
-		List<String> readPermissions = new ArrayList<String>(mConfiguration.getReadPermissions());
-		List<String> publishPermissions = new ArrayList<String>(mConfiguration.getPublishPermissions());
-		readPermissions.removeAll(grantedPermissions);
-		publishPermissions.removeAll(grantedPermissions);
-		if (readPermissions.size() > 0 || publishPermissions.size() > 0) {
+		Set<Permission> grantedPermissions = mSessionManager.getGrantedPermissions();
+		SimpleFacebookConfiguration configuration = mSessionManager.getConfiguration();
+		if (!grantedPermissions.containsAll(configuration.getReadPermissionSet()) || !grantedPermissions.containsAll(configuration.getPublishPermissionSet())) {
 			return false;
 		}
 		return true;
@@ -644,7 +1119,7 @@ public class SimpleFacebook {
 	 * Activity of your app.
 	 */
 	public void eventAppLaunched() {
-		AppEventsLogger.activateApp(mActivity.getApplicationContext(), mConfiguration.getAppId());
+		AppEventsLogger.activateApp(mSessionManager.getContext(), mSessionManager.getConfiguration().getAppId());
 	}
 
 	/**
@@ -664,8 +1139,7 @@ public class SimpleFacebook {
 	 * Clean all references like Activity to prevent memory leaks
 	 */
 	public void clean() {
-		mActivity = null;
-		SessionManager.activity = null;
+		mSessionManager.setActivity(null);
 	}
 
 }
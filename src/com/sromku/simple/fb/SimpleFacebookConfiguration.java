@@ -1,33 +1,46 @@
 package com.sromku.simple.fb;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
 
 import com.facebook.SessionDefaultAudience;
 import com.facebook.SessionLoginBehavior;
+import com.sromku.simple.fb.utils.ConnectionPool;
 
+/**
+ * The configuration of the library. The configuration is immutable, and
+ * changes like new permissions that were asked in a runtime create a new
+ * configuration, thus it's safe to share it between threads.
+ */
 public class SimpleFacebookConfiguration {
-	private String mAppId;
-	private String mNamespace;
-	private List<String> mReadPermissions = null;
-	private List<String> mPublishPermissions = null;
-	private SessionDefaultAudience mDefaultAudience = null;
-	private SessionLoginBehavior mLoginBehavior = null;
-	private boolean mHasPublishPermissions = false;
-	boolean mAllAtOnce = false;
+	private final String mAppId;
+	private final String mNamespace;
+	private final List<String> mReadPermissions;
+	private final List<String> mPublishPermissions;
+	private final EnumSet<Permission> mReadPermissionSet;
+	private final EnumSet<Permission> mPublishPermissionSet;
+	private final SessionDefaultAudience mDefaultAudience;
+	private final SessionLoginBehavior mLoginBehavior;
+	private final boolean mHasPublishPermissions;
+	private final boolean mAllAtOnce;
+	private final boolean mStringPoolEnabled;
+	private final ConnectionPool mConnectionPool;
 
 	private SimpleFacebookConfiguration(Builder builder) {
 		this.mAppId = builder.mAppId;
 		this.mNamespace = builder.mNamespace;
-		this.mReadPermissions = builder.mReadPermissions;
-		this.mPublishPermissions = builder.mPublishPermissions;
+		this.mReadPermissions = Collections.unmodifiableList(new ArrayList<String>(builder.mReadPermissions));
+		this.mPublishPermissions = Collections.unmodifiableList(new ArrayList<String>(builder.mPublishPermissions));
+		this.mReadPermissionSet = EnumSet.copyOf(builder.mReadPermissionSet);
+		this.mPublishPermissionSet = EnumSet.copyOf(builder.mPublishPermissionSet);
 		this.mDefaultAudience = builder.mDefaultAudience;
 		this.mLoginBehavior = builder.mLoginBehavior;
 		this.mAllAtOnce = builder.mAllAtOnce;
-
-		if (this.mPublishPermissions.size() > 0) {
-			this.mHasPublishPermissions = true;
-		}
+		this.mStringPoolEnabled = builder.mStringPoolEnabled;
+		this.mConnectionPool = builder.mConnectionPool;
+		this.mHasPublishPermissions = this.mPublishPermissions.size() > 0;
 	}
 
 	/**
@@ -66,6 +79,34 @@ public class SimpleFacebookConfiguration {
 		return mPublishPermissions;
 	}
 
+	/**
+	 * Get read permissions as set
+	 * 
+	 * @return
+	 */
+	EnumSet<Permission> getReadPermissionSet() {
+		return mReadPermissionSet;
+	}
+
+	/**
+	 * Get publish permissions as set
+	 * 
+	 * @return
+	 */
+	EnumSet<Permission> getPublishPermissionSet() {
+		return mPublishPermissionSet;
+	}
+
+	/**
+	 * Return <code>True</code> if the permission is defined as publish
+	 * permission
+	 * 
+	 * @param permission
+	 */
+	public boolean isPublishPermission(Permission permission) {
+		return mPublishPermissionSet.contains(permission);
+	}
+
 	/**
 	 * Return <code>True</code> if 'PUBLISH' permissions are defined
 	 * 
@@ -102,31 +143,43 @@ public class SimpleFacebookConfiguration {
 	}
 
 	/**
-	 * Add new permissions in a runtime
+	 * Return <code>True</code> if repeated string values of the same response
+	 * should share one instance.
+	 */
+	public boolean isStringPoolEnabled() {
+		return mStringPoolEnabled;
+	}
+
+	/**
+	 * Get the settings of the connections
+	 * 
+	 * @return The settings or <code>null</code> if the defaults of the
+	 *         platform are used
+	 */
+	public ConnectionPool getConnectionPool() {
+		return mConnectionPool;
+	}
+
+	/**
+	 * Create new configuration with the permissions that are asked in a
+	 * runtime
 	 * 
 	 * @param permissions
+	 * @return The new configuration
 	 */
-	void addNewPermissions(Permission[] permissions) {
-		for (Permission permission : permissions) {
-			switch (permission.getType()) {
-			case READ:
-				if (!mReadPermissions.contains(permission.getValue())) {
-					mReadPermissions.add(permission.getValue());
-				}
-				break;
-			case PUBLISH:
-				if (!mPublishPermissions.contains(permission.getValue())) {
-					mPublishPermissions.add(permission.getValue());
-				}
-				break;
-			default:
-				break;
-			}
-		}
+	SimpleFacebookConfiguration withNewPermissions(Permission[] permissions) {
+		return new Builder(this).setPermissions(permissions).build();
+	}
 
-		if (this.mPublishPermissions.size() > 0) {
-			this.mHasPublishPermissions = true;
-		}
+	/**
+	 * Create new configuration with another value of
+	 * {@link Builder#setAskForAllPermissionsAtOnce(boolean)}
+	 * 
+	 * @param allAtOnce
+	 * @return The new configuration
+	 */
+	SimpleFacebookConfiguration withAllPermissionsAtOnce(boolean allAtOnce) {
+		return new Builder(this).setAskForAllPermissionsAtOnce(allAtOnce).build();
 	}
 
 	public static class Builder {
@@ -134,13 +187,36 @@ public class SimpleFacebookConfiguration {
 		private String mNamespace = null;
 		private List<String> mReadPermissions = new ArrayList<String>();
 		private List<String> mPublishPermissions = new ArrayList<String>();
+		private EnumSet<Permission> mReadPermissionSet = EnumSet.noneOf(Permission.class);
+		private EnumSet<Permission> mPublishPermissionSet = EnumSet.noneOf(Permission.class);
 		private SessionDefaultAudience mDefaultAudience = SessionDefaultAudience.FRIENDS;
 		private SessionLoginBehavior mLoginBehavior = SessionLoginBehavior.SSO_WITH_FALLBACK;
 		private boolean mAllAtOnce = false;
+		private boolean mStringPoolEnabled = false;
+		private ConnectionPool mConnectionPool = null;
 
 		public Builder() {
 		}
 
+		/**
+		 * Start from the values of existing configuration
+		 * 
+		 * @param configuration
+		 */
+		public Builder(SimpleFacebookConfiguration configuration) {
+			mAppId = configuration.mAppId;
+			mNamespace = configuration.mNamespace;
+			mReadPermissions.addAll(configuration.mReadPermissions);
+			mPublishPermissions.addAll(configuration.mPublishPermissions);
+			mReadPermissionSet.addAll(configuration.mReadPermissionSet);
+			mPublishPermissionSet.addAll(configuration.mPublishPermissionSet);
+			mDefaultAudience = configuration.mDefaultAudience;
+			mLoginBehavior = configuration.mLoginBehavior;
+			mAllAtOnce = configuration.mAllAtOnce;
+			mStringPoolEnabled = configuration.mStringPoolEnabled;
+			mConnectionPool = configuration.mConnectionPool;
+		}
+
 		/**
 		 * Set facebook App Id. <br>
 		 * The application id is located in the dashboard of the app in admin
@@ -173,10 +249,14 @@ public class SimpleFacebookConfiguration {
 			for (Permission permission : permissions) {
 				switch (permission.getType()) {
 				case READ:
-					mReadPermissions.add(permission.getValue());
+					if (mReadPermissionSet.add(permission)) {
+						mReadPermissions.add(permission.getValue());
+					}
 					break;
 				case PUBLISH:
-					mPublishPermissions.add(permission.getValue());
+					if (mPublishPermissionSet.add(permission)) {
+						mPublishPermissions.add(permission.getValue());
+					}
 					break;
 				default:
 					break;
@@ -225,6 +305,36 @@ public class SimpleFacebookConfiguration {
 			return this;
 		}
 
+		/**
+		 * Share repeated string values while converting a response into
+		 * entities. Large friends and photos lists repeat the same names,
+		 * ids, locales and types many times, and with this flag each distinct
+		 * value is kept only once per response. <br>
+		 * <br>
+		 * The default value is <code>false</code>.
+		 * 
+		 * @param enabled
+		 * @return {@link Builder}
+		 */
+		public Builder setStringPoolEnabled(boolean enabled) {
+			mStringPoolEnabled = enabled;
+			return this;
+		}
+
+		/**
+		 * Set the settings of the connections, like the number of idle
+		 * connections to keep and the TLS session cache. The settings are
+		 * shared by all requests of the process. Set them before the first
+		 * request, since older platforms read them only once.
+		 * 
+		 * @param connectionPool
+		 * @return {@link Builder}
+		 */
+		public Builder setConnectionPool(ConnectionPool connectionPool) {
+			mConnectionPool = connectionPool;
+			return this;
+		}
+
 		/**
 		 * Build the configuration for storage tool.
 		 * 
@@ -0,0 +1,191 @@
+package com.sromku.simple.fb;
+
+import java.util.Date;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+
+import com.facebook.HttpMethod;
+import com.facebook.Request;
+import com.facebook.RequestBatch;
+import com.facebook.Response;
+import com.facebook.Session;
+import com.sromku.simple.fb.utils.Logger;
+
+/**
+ * Keeps the access token of the open session fresh. The refresh is scheduled
+ * ahead of the token expiration, so requests don't fail first on an expired
+ * token. <br>
+ * <br>
+ * Facebook SDK extends the token by itself only after a request of the
+ * session was completed, thus the refresh is a light request of the user id,
+ * and then waiting for the session to report the updated token. Actions are
+ * held during the refresh only when the current token would expire before
+ * the refresh is done, otherwise they keep running with the current token.
+ */
+class TokenLifecycleManager {
+
+	private static final Class<?> TAG = TokenLifecycleManager.class;
+
+	// the sdk doesn't extend tokens that were refreshed in the last 24 hours
+	private static final long REFRESH_AHEAD = 24 * 60 * 60 * 1000L;
+	private static final long RETRY_DELAY = 60 * 60 * 1000L;
+	private static final long HOLD_AHEAD = 5 * 60 * 1000L;
+	private static final long REFRESH_TIMEOUT = 10 * 1000L;
+
+	private final SessionManager mSessionManager;
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+	private Session mSession = null;
+	private String mAccessToken = null;
+	private long mExpiresAt = Long.MAX_VALUE;
+	private volatile long mRefreshAt = Long.MAX_VALUE;
+	private boolean mRefreshing = false;
+	private boolean mHolding = false;
+
+	private final Runnable mRefreshRunnable = new Runnable() {
+		@Override
+		public void run() {
+			refresh();
+		}
+	};
+
+	private final Runnable mTimeoutRunnable = new Runnable() {
+		@Override
+		public void run() {
+			onRefreshTimeout();
+		}
+	};
+
+	TokenLifecycleManager(SessionManager sessionManager) {
+		mSessionManager = sessionManager;
+	}
+
+	/**
+	 * Update the schedule by the current state of the session. Should be
+	 * called on each state change of the session.
+	 *
+	 * @param session
+	 */
+	synchronized void onSessionChanged(Session session) {
+		mHandler.removeCallbacks(mRefreshRunnable);
+		if (session == null || !session.isOpened()) {
+			finishRefresh();
+			mSession = null;
+			mAccessToken = null;
+			mExpiresAt = Long.MAX_VALUE;
+			mRefreshAt = Long.MAX_VALUE;
+			return;
+		}
+
+		String accessToken = session.getAccessToken();
+		if (mRefreshing && session == mSession && accessToken != null && accessToken.equals(mAccessToken)) {
+			// not the refreshed token yet
+			return;
+		}
+		finishRefresh();
+
+		mSession = session;
+		mAccessToken = accessToken;
+		Date expirationDate = session.getExpirationDate();
+		mExpiresAt = expirationDate != null ? expirationDate.getTime() : Long.MAX_VALUE;
+		if (mExpiresAt == Long.MAX_VALUE) {
+			mRefreshAt = Long.MAX_VALUE;
+			return;
+		}
+		schedule(mExpiresAt - REFRESH_AHEAD);
+	}
+
+	/**
+	 * Start the refresh if its time already passed. The handler doesn't
+	 * count the time the device was sleeping, so this is checked before each
+	 * action too.
+	 */
+	void checkExpiry() {
+		if (System.currentTimeMillis() >= mRefreshAt) {
+			refresh();
+		}
+	}
+
+	private void schedule(long refreshAt) {
+		mRefreshAt = refreshAt;
+		long delay = Math.max(refreshAt - System.currentTimeMillis(), 0);
+		mHandler.postDelayed(mRefreshRunnable, delay);
+	}
+
+	private synchronized void refresh() {
+		if (mRefreshing || mSession == null || !mSession.isOpened()) {
+			return;
+		}
+		mHandler.removeCallbacks(mRefreshRunnable);
+		mRefreshing = true;
+		mRefreshAt = Long.MAX_VALUE;
+		if (mExpiresAt - System.currentTimeMillis() <= HOLD_AHEAD) {
+			mHolding = true;
+			mSessionManager.hold();
+		}
+
+		Logger.logInfo(TAG, "Refreshing the access token that expires at " + new Date(mExpiresAt));
+		Bundle bundle = new Bundle();
+		bundle.putString("fields", "id");
+		final Request request = new Request(mSession, "me", bundle, HttpMethod.GET, new Request.Callback() {
+			@Override
+			public void onCompleted(Response response) {
+				// the sdk extends the token in the background after the request
+				synchronized (TokenLifecycleManager.this) {
+					if (mRefreshing) {
+						mHandler.postDelayed(mTimeoutRunnable, REFRESH_TIMEOUT);
+					}
+				}
+			}
+		});
+		mHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				mSessionManager.getTransport().execute(new RequestBatch(request));
+			}
+		});
+	}
+
+	private synchronized void onRefreshTimeout() {
+		if (!mRefreshing) {
+			return;
+		}
+		finishRefresh();
+
+		// the sdk doesn't report the extension if the session already was in
+		// OPENED_TOKEN_UPDATED state, so check the token itself
+		if (mSession != null && mSession.isOpened()) {
+			String accessToken = mSession.getAccessToken();
+			Date expirationDate = mSession.getExpirationDate();
+			long expiresAt = expirationDate != null ? expirationDate.getTime() : Long.MAX_VALUE;
+			if (expiresAt != mExpiresAt || (accessToken != null && !accessToken.equals(mAccessToken))) {
+				onSessionChanged(mSession);
+				return;
+			}
+		}
+
+		long now = System.currentTimeMillis();
+		if (now + RETRY_DELAY < mExpiresAt) {
+			Logger.logWarning(TAG, "The access token wasn't refreshed, will try again later");
+			schedule(now + RETRY_DELAY);
+		}
+		else {
+			Logger.logWarning(TAG, "The access token wasn't refreshed and expires at " + new Date(mExpiresAt));
+			mRefreshAt = Long.MAX_VALUE;
+		}
+	}
+
+	private void finishRefresh() {
+		if (!mRefreshing) {
+			return;
+		}
+		mRefreshing = false;
+		mHandler.removeCallbacks(mTimeoutRunnable);
+		if (mHolding) {
+			mHolding = false;
+			mSessionManager.release();
+		}
+	}
+}
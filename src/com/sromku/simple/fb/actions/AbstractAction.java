@@ -1,21 +1,71 @@
 package com.sromku.simple.fb.actions;
 
+import java.util.concurrent.Executor;
+
+import android.os.AsyncTask;
+import android.os.Build;
+
+import com.facebook.RequestBatch;
+import com.facebook.Settings;
+
 import com.sromku.simple.fb.SessionManager;
-import com.sromku.simple.fb.SimpleFacebook;
 import com.sromku.simple.fb.SimpleFacebookConfiguration;
 
 public abstract class AbstractAction {
 
 	protected SessionManager sessionManager;
-	protected SimpleFacebookConfiguration configuration = SimpleFacebook.getConfiguration();
+	protected SimpleFacebookConfiguration configuration;
 
 	public AbstractAction(SessionManager sessionManager) {
 		this.sessionManager = sessionManager;
+		this.configuration = sessionManager.getConfiguration();
 	}
 
+	/**
+	 * Execute the action. If the session is being restored or refreshed, then
+	 * the action will be executed once the session is ready.
+	 */
 	public void execute() {
-		executeImpl();
+		sessionManager.runWhenReady(new Runnable() {
+			@Override
+			public void run() {
+				executeImpl();
+			}
+		});
 	}
 
 	protected abstract void executeImpl();
+
+	/**
+	 * The executor of the session manager, or the executor of Facebook SDK if
+	 * the manager doesn't have one
+	 */
+	protected Executor getExecutor() {
+		Executor executor = sessionManager.getExecutor();
+		return executor != null ? executor : Settings.getExecutor();
+	}
+
+	/**
+	 * Send the requests by the transport of the session manager
+	 * 
+	 * @param batch
+	 */
+	protected void executeBatch(RequestBatch batch) {
+		sessionManager.getTransport().execute(batch);
+	}
+
+	/**
+	 * Execute the task on the executor of the session manager, or on the
+	 * executor of Facebook SDK if the manager doesn't have one
+	 * 
+	 * @param task
+	 */
+	protected void executeTask(AsyncTask<Void, ?, ?> task) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+			task.executeOnExecutor(getExecutor());
+		}
+		else {
+			task.execute();
+		}
+	}
 }
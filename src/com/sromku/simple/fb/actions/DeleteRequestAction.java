@@ -3,6 +3,7 @@ package com.sromku.simple.fb.actions;
 import com.facebook.FacebookRequestError;
 import com.facebook.HttpMethod;
 import com.facebook.Request;
+import com.facebook.RequestBatch;
 import com.facebook.Response;
 import com.facebook.Session;
 import com.sromku.simple.fb.SessionManager;
@@ -49,7 +50,7 @@ public class DeleteRequestAction extends AbstractAction {
 					}
 				}
 			});
-			Request.executeBatchAsync(request);
+			executeBatch(new RequestBatch(request));
 		}
 		else {
 			String reason = Errors.getError(ErrorMsg.LOGIN);
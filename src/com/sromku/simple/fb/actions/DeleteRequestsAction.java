@@ -0,0 +1,123 @@
+package com.sromku.simple.fb.actions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.facebook.FacebookRequestError;
+import com.facebook.HttpMethod;
+import com.facebook.Request;
+import com.facebook.RequestBatch;
+import com.facebook.Response;
+import com.facebook.Session;
+import com.sromku.simple.fb.SessionManager;
+import com.sromku.simple.fb.listeners.OnDeleteAllListener;
+import com.sromku.simple.fb.utils.Errors;
+import com.sromku.simple.fb.utils.Errors.ErrorMsg;
+import com.sromku.simple.fb.utils.Logger;
+
+/**
+ * Delete many app requests. The ids are split to Graph batches of up to
+ * {@link #MAX_BATCH_SIZE} requests, and all batches are sent at once. <br>
+ * <br>
+ * The callbacks of the batches may run on several threads at once, like
+ * with {@link com.sromku.simple.fb.utils.ConnectionTransport}, and the
+ * listener is called on these threads.
+ */
+public class DeleteRequestsAction extends AbstractAction {
+
+	public static final int MAX_BATCH_SIZE = 50;
+
+	private OnDeleteAllListener mOnDeleteAllListener;
+	private Collection<String> mRequestIds;
+
+	private final List<String> mDeleted = Collections.synchronizedList(new ArrayList<String>());
+	private final AtomicInteger mPendingBatches = new AtomicInteger();
+
+	public DeleteRequestsAction(SessionManager sessionManager) {
+		super(sessionManager);
+	}
+
+	public void setRequestIds(Collection<String> requestIds) {
+		mRequestIds = requestIds;
+	}
+
+	public void setOnDeleteAllListener(OnDeleteAllListener onDeleteAllListener) {
+		mOnDeleteAllListener = onDeleteAllListener;
+	}
+
+	@Override
+	protected void executeImpl() {
+		if (sessionManager.isLogin(true)) {
+			List<String> requestIds = new ArrayList<String>(mRequestIds);
+			if (requestIds.size() == 0) {
+				if (mOnDeleteAllListener != null) {
+					mOnDeleteAllListener.onComplete(mDeleted);
+				}
+				return;
+			}
+
+			Session session = sessionManager.getActiveSession();
+			List<RequestBatch> batches = new ArrayList<RequestBatch>();
+			for (int start = 0; start < requestIds.size(); start += MAX_BATCH_SIZE) {
+				RequestBatch batch = new RequestBatch();
+				for (String requestId : requestIds.subList(start, Math.min(start + MAX_BATCH_SIZE, requestIds.size()))) {
+					batch.add(new Request(session, requestId, null, HttpMethod.DELETE, new ItemCallback(requestId)));
+				}
+				batch.addCallback(new RequestBatch.Callback() {
+					@Override
+					public void onBatchCompleted(RequestBatch batch) {
+						if (mPendingBatches.decrementAndGet() == 0 && mOnDeleteAllListener != null) {
+							mOnDeleteAllListener.onComplete(mDeleted);
+						}
+					}
+				});
+				batches.add(batch);
+			}
+
+			// the batches run in parallel on the transport of the session manager
+			mPendingBatches.set(batches.size());
+			for (RequestBatch batch : batches) {
+				executeBatch(batch);
+			}
+			if (mOnDeleteAllListener != null) {
+				mOnDeleteAllListener.onThinking();
+			}
+		}
+		else {
+			String reason = Errors.getError(ErrorMsg.LOGIN);
+			Logger.logError(DeleteRequestsAction.class, reason, null);
+			if (mOnDeleteAllListener != null) {
+				mOnDeleteAllListener.onFail(reason);
+			}
+		}
+	}
+
+	private class ItemCallback implements Request.Callback {
+
+		private final String mRequestId;
+
+		ItemCallback(String requestId) {
+			mRequestId = requestId;
+		}
+
+		@Override
+		public void onCompleted(Response response) {
+			FacebookRequestError error = response.getError();
+			if (error != null) {
+				Logger.logError(DeleteRequestsAction.class, "failed to delete request " + mRequestId, error.getException());
+				if (mOnDeleteAllListener != null) {
+					mOnDeleteAllListener.onItemException(mRequestId, error.getException());
+				}
+			}
+			else {
+				mDeleted.add(mRequestId);
+				if (mOnDeleteAllListener != null) {
+					mOnDeleteAllListener.onItemComplete(mRequestId);
+				}
+			}
+		}
+	}
+}
@@ -1,21 +1,25 @@
 package com.sromku.simple.fb.actions;
 
 import java.lang.reflect.Type;
+import java.util.Collection;
 
 import android.os.Bundle;
 
 import com.facebook.FacebookRequestError;
 import com.facebook.HttpMethod;
 import com.facebook.Request;
-import com.facebook.RequestAsyncTask;
+import com.facebook.RequestBatch;
 import com.facebook.Response;
 import com.facebook.Response.PagingDirection;
 import com.facebook.Session;
 import com.sromku.simple.fb.SessionManager;
+import com.sromku.simple.fb.entities.User;
 import com.sromku.simple.fb.listeners.OnActionListener;
 import com.sromku.simple.fb.utils.Errors;
 import com.sromku.simple.fb.utils.Errors.ErrorMsg;
 import com.sromku.simple.fb.utils.Logger;
+import com.sromku.simple.fb.utils.StringPool;
+import com.sromku.simple.fb.utils.UserRegistry;
 import com.sromku.simple.fb.utils.Utils;
 
 public class GetAction<T> extends AbstractAction {
@@ -24,6 +28,7 @@ public class GetAction<T> extends AbstractAction {
 	private String mEdge = null;
 	private OnActionListener<T> mOnActionListener = null;
 	private Cursor<T> mCursor = null;
+	private UserRegistry mUserRegistry = null;
 
 	private Request.Callback mCallback = new Request.Callback() {
 		@Override
@@ -44,7 +49,7 @@ public class GetAction<T> extends AbstractAction {
 					if (actionListener != null) {
 						try {
 							updateCursor(response);
-							T result = processResponse(response);
+							T result = convertResponse(response);
 							actionListener.onComplete(result);
 						}
 						catch (Exception e) {
@@ -72,6 +77,16 @@ public class GetAction<T> extends AbstractAction {
 		mOnActionListener = actionListener;
 	}
 
+	/**
+	 * Set the registry of users to share between responses. If not set, a new
+	 * registry is used for each response.
+	 * 
+	 * @param userRegistry
+	 */
+	public void setUserRegistry(UserRegistry userRegistry) {
+		mUserRegistry = userRegistry;
+	}
+
 	@Override
 	protected void executeImpl() {
 		OnActionListener<T> actionListener = getActionListener();
@@ -119,11 +134,45 @@ public class GetAction<T> extends AbstractAction {
 		return Utils.convert(response, type);
 	}
 
+	/**
+	 * Register the converted users (like profiles) in the registry of the
+	 * current response, so they will be reused as authors of other entities.
+	 */
+	protected void registerUser(User user) {
+		UserRegistry registry = UserRegistry.current();
+		if (registry != null) {
+			registry.register(user);
+		}
+	}
+
+	protected void registerUsers(Collection<? extends User> users) {
+		UserRegistry registry = UserRegistry.current();
+		if (registry != null) {
+			registry.register(users);
+		}
+	}
+
+	private T convertResponse(Response response) {
+		boolean poolStrings = configuration.isStringPoolEnabled();
+		UserRegistry.begin(mUserRegistry);
+		if (poolStrings) {
+			StringPool.begin();
+		}
+		try {
+			return processResponse(response);
+		}
+		finally {
+			if (poolStrings) {
+				StringPool.end();
+			}
+			UserRegistry.end();
+		}
+	}
+
 	void runRequest(Request request) {
 		OnActionListener<T> actionListener = getActionListener();
 		request.setCallback(mCallback);
-		RequestAsyncTask task = new RequestAsyncTask(request);
-		task.execute();
+		executeBatch(new RequestBatch(request));
 		if (actionListener != null) {
 			actionListener.onThinking();
 		}
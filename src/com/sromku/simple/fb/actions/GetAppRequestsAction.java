@@ -3,24 +3,41 @@ package com.sromku.simple.fb.actions;
 import java.util.ArrayList;
 import java.util.List;
 
+import android.os.Bundle;
+
 import com.facebook.Response;
 import com.facebook.model.GraphObject;
 import com.sromku.simple.fb.SessionManager;
 import com.sromku.simple.fb.entities.AppRequest;
 import com.sromku.simple.fb.utils.GraphPath;
+import com.sromku.simple.fb.utils.QueryOptions;
 import com.sromku.simple.fb.utils.Utils;
 
 public class GetAppRequestsAction extends GetAction<List<AppRequest>> {
 
+	private QueryOptions mQueryOptions;
+
 	public GetAppRequestsAction(SessionManager sessionManager) {
 		super(sessionManager);
 	}
 
+	public void setQueryOptions(QueryOptions queryOptions) {
+		mQueryOptions = queryOptions;
+	}
+
 	@Override
 	protected String getGraphPath() {
 		return String.format("%s/%s", getTarget(), GraphPath.APPREQUESTS);
 	}
 
+	@Override
+	protected Bundle getBundle() {
+		if (mQueryOptions != null) {
+			return mQueryOptions.getBundle();
+		}
+		return super.getBundle();
+	}
+
 	@Override
 	protected List<AppRequest> processResponse(Response response) {
 		List<GraphObject> graphObjects = Utils.typedListFromResponse(response, GraphObject.class);
@@ -10,12 +10,14 @@ import com.facebook.model.GraphUser;
 import com.sromku.simple.fb.SessionManager;
 import com.sromku.simple.fb.entities.Profile;
 import com.sromku.simple.fb.entities.Profile.Properties;
+import com.sromku.simple.fb.utils.FriendsSearchIndex;
 import com.sromku.simple.fb.utils.GraphPath;
 import com.sromku.simple.fb.utils.Utils;
 
 public class GetFriendsAction extends GetAction<List<Profile>> {
 
 	private Properties mProperties;
+	private FriendsSearchIndex mSearchIndex;
 
 	public GetFriendsAction(SessionManager sessionManager) {
 		super(sessionManager);
@@ -25,6 +27,15 @@ public class GetFriendsAction extends GetAction<List<Profile>> {
 		mProperties = properties;
 	}
 
+	/**
+	 * Set the index that will be updated with each page of friends
+	 * 
+	 * @param searchIndex
+	 */
+	public void setSearchIndex(FriendsSearchIndex searchIndex) {
+		mSearchIndex = searchIndex;
+	}
+
 	@Override
 	protected String getGraphPath() {
 		return String.format("%s/%s", getTarget(), GraphPath.FRIENDS);
@@ -45,6 +56,10 @@ public class GetFriendsAction extends GetAction<List<Profile>> {
 		for (GraphUser graphUser : graphUsers) {
 			profiles.add(Profile.create(graphUser));
 		}
+		registerUsers(profiles);
+		if (mSearchIndex != null) {
+			mSearchIndex.addAll(profiles);
+		}
 		return profiles;
 	}
 
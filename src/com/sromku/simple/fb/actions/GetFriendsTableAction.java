@@ -0,0 +1,46 @@
+package com.sromku.simple.fb.actions;
+
+import java.util.List;
+
+import android.os.Bundle;
+
+import com.facebook.Response;
+import com.facebook.model.GraphObject;
+import com.sromku.simple.fb.SessionManager;
+import com.sromku.simple.fb.entities.FriendTable;
+import com.sromku.simple.fb.entities.Profile.Properties;
+import com.sromku.simple.fb.utils.GraphPath;
+import com.sromku.simple.fb.utils.Utils;
+
+public class GetFriendsTableAction extends GetAction<FriendTable> {
+
+	private Properties mProperties;
+
+	public GetFriendsTableAction(SessionManager sessionManager) {
+		super(sessionManager);
+	}
+
+	public void setProperties(Properties properties) {
+		mProperties = properties;
+	}
+
+	@Override
+	protected String getGraphPath() {
+		return String.format("%s/%s", getTarget(), GraphPath.FRIENDS);
+	}
+
+	@Override
+	protected Bundle getBundle() {
+		if (mProperties != null) {
+			return mProperties.getBundle();
+		}
+		return null;
+	}
+
+	@Override
+	protected FriendTable processResponse(Response response) {
+		List<GraphObject> graphObjects = Utils.typedListFromResponse(response, GraphObject.class);
+		return FriendTable.create(graphObjects, mProperties);
+	}
+
+}
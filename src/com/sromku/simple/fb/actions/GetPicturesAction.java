@@ -0,0 +1,171 @@
+package com.sromku.simple.fb.actions;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.os.Bundle;
+
+import com.facebook.FacebookRequestError;
+import com.facebook.HttpMethod;
+import com.facebook.Request;
+import com.facebook.RequestBatch;
+import com.facebook.Response;
+import com.facebook.Session;
+import com.facebook.model.GraphObject;
+import com.sromku.simple.fb.SessionManager;
+import com.sromku.simple.fb.listeners.OnPicturesListener;
+import com.sromku.simple.fb.utils.Errors;
+import com.sromku.simple.fb.utils.Errors.ErrorMsg;
+import com.sromku.simple.fb.utils.Logger;
+import com.sromku.simple.fb.utils.PictureAttributes;
+import com.sromku.simple.fb.utils.PictureResolver;
+import com.sromku.simple.fb.utils.Utils;
+
+/**
+ * Resolve picture urls of many users. Only the ids that are missing in
+ * {@link PictureResolver} are requested, by <code>?ids=</code> requests of up
+ * to {@link #MAX_IDS} ids, which are sent in batches of up to
+ * {@link #MAX_BATCH_SIZE} requests.
+ */
+public class GetPicturesAction extends AbstractAction {
+
+	public static final int MAX_IDS = 50;
+	public static final int MAX_BATCH_SIZE = 50;
+
+	private Collection<String> mIds;
+	private PictureAttributes mPictureAttributes;
+	private PictureResolver mPictureResolver;
+	private OnPicturesListener mOnPicturesListener;
+
+	public GetPicturesAction(SessionManager sessionManager) {
+		super(sessionManager);
+	}
+
+	public void setIds(Collection<String> ids) {
+		mIds = ids;
+	}
+
+	public void setPictureAttributes(PictureAttributes pictureAttributes) {
+		mPictureAttributes = pictureAttributes;
+	}
+
+	public void setPictureResolver(PictureResolver pictureResolver) {
+		mPictureResolver = pictureResolver;
+	}
+
+	public void setOnPicturesListener(OnPicturesListener onPicturesListener) {
+		mOnPicturesListener = onPicturesListener;
+	}
+
+	@Override
+	protected void executeImpl() {
+		List<String> missing = mPictureResolver.getMissing(mIds, mPictureAttributes);
+		if (missing.size() == 0) {
+			if (mOnPicturesListener != null) {
+				mOnPicturesListener.onComplete(getResult());
+			}
+			return;
+		}
+
+		if (!sessionManager.isLogin(true)) {
+			String reason = Errors.getError(ErrorMsg.LOGIN);
+			Logger.logError(GetPicturesAction.class, reason, null);
+			if (mOnPicturesListener != null) {
+				mOnPicturesListener.onFail(reason);
+			}
+			return;
+		}
+
+		Session session = sessionManager.getActiveSession();
+		final List<Throwable> failures = Collections.synchronizedList(new ArrayList<Throwable>());
+		final List<Request> requests = new ArrayList<Request>();
+		for (int start = 0; start < missing.size(); start += MAX_IDS) {
+			final List<String> ids = missing.subList(start, Math.min(start + MAX_IDS, missing.size()));
+			Bundle bundle = new Bundle();
+			bundle.putString("ids", Utils.join(ids.iterator(), ','));
+			bundle.putString("fields", PictureResolver.getField(mPictureAttributes));
+			requests.add(new Request(session, "", bundle, HttpMethod.GET, new Request.Callback() {
+				@Override
+				public void onCompleted(Response response) {
+					FacebookRequestError error = response.getError();
+					if (error != null) {
+						Logger.logError(GetPicturesAction.class, "Failed to resolve pictures", error.getException());
+						failures.add(error.getException());
+						if (mOnPicturesListener != null) {
+							mOnPicturesListener.onIdsException(new ArrayList<String>(ids), error.getException());
+						}
+						return;
+					}
+					processResponse(response, ids);
+				}
+			}));
+		}
+
+		// the batches run in parallel, the listener is called after the last one
+		final AtomicInteger pendingBatches = new AtomicInteger();
+		RequestBatch.Callback callback = new RequestBatch.Callback() {
+			@Override
+			public void onBatchCompleted(RequestBatch batch) {
+				if (pendingBatches.decrementAndGet() > 0 || mOnPicturesListener == null) {
+					return;
+				}
+				if (failures.size() == requests.size()) {
+					mOnPicturesListener.onException(failures.get(0));
+					return;
+				}
+				mOnPicturesListener.onComplete(getResult());
+			}
+		};
+		List<RequestBatch> batches = new ArrayList<RequestBatch>();
+		for (int start = 0; start < requests.size(); start += MAX_BATCH_SIZE) {
+			RequestBatch batch = new RequestBatch(requests.subList(start, Math.min(start + MAX_BATCH_SIZE, requests.size())));
+			batch.addCallback(callback);
+			batches.add(batch);
+		}
+		pendingBatches.set(batches.size());
+		for (RequestBatch batch : batches) {
+			executeBatch(batch);
+		}
+		if (mOnPicturesListener != null) {
+			mOnPicturesListener.onThinking();
+		}
+	}
+
+	private void processResponse(Response response, List<String> ids) {
+		GraphObject graphObject = response.getGraphObject();
+		if (graphObject == null) {
+			return;
+		}
+		for (String id : ids) {
+			GraphObject user = Utils.getPropertyGraphObject(graphObject, id);
+			if (user == null) {
+				continue;
+			}
+			GraphObject picture = Utils.getPropertyGraphObject(user, "picture");
+			String url = Utils.getPropertyInsideProperty(picture, "data", "url");
+			// missing values are converted to "null" string
+			if (url != null && !"null".equals(url)) {
+				mPictureResolver.put(id, mPictureAttributes, url);
+			}
+		}
+	}
+
+	/**
+	 * The urls of all requested ids which are resolved now
+	 */
+	private Map<String, String> getResult() {
+		Map<String, String> result = new HashMap<String, String>();
+		for (String id : new ArrayList<String>(mIds)) {
+			String url = mPictureResolver.get(id, mPictureAttributes);
+			if (url != null) {
+				result.put(id, url);
+			}
+		}
+		return result;
+	}
+}
@@ -37,6 +37,7 @@ public class GetProfileAction extends GetAction<Profile> {
 	protected Profile processResponse(Response response) {
 		GraphUser graphUser = response.getGraphObjectAs(GraphUser.class);
 		Profile profile = Profile.create(graphUser);
+		registerUser(profile);
 		return profile;
 	}
 
@@ -13,7 +13,6 @@ import android.view.WindowManager;
 
 import com.facebook.FacebookException;
 import com.facebook.FacebookOperationCanceledException;
-import com.facebook.Session;
 import com.facebook.widget.WebDialog;
 import com.sromku.simple.fb.SessionManager;
 import com.sromku.simple.fb.listeners.OnInviteListener;
@@ -60,6 +59,12 @@ public class InviteAction extends AbstractAction {
 
 	@Override
 	protected void executeImpl() {
+		if (sessionManager.getActivity() == null) {
+			String reason = Errors.getError(ErrorMsg.DIALOG_ACTIVITY);
+			Logger.logError(InviteAction.class, reason, null);
+			mOnInviteListener.onFail(reason);
+			return;
+		}
 		if (sessionManager.isLogin(true)) {
 			Bundle params = new Bundle();
 			if (mMessage != null) {
@@ -84,7 +89,7 @@ public class InviteAction extends AbstractAction {
 	}
 
 	private void openInviteDialog(Activity activity, Bundle params, final OnInviteListener onInviteListener) {
-		final Dialog dialog = new WebDialog.RequestsDialogBuilder(activity, Session.getActiveSession(), params).setOnCompleteListener(new WebDialog.OnCompleteListener() {
+		final Dialog dialog = new WebDialog.RequestsDialogBuilder(activity, sessionManager.getActiveSession(), params).setOnCompleteListener(new WebDialog.OnCompleteListener() {
 			@Override
 			public void onComplete(Bundle values, FacebookException error) {
 				if (error != null) {
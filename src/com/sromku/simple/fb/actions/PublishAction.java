@@ -1,23 +1,31 @@
 package com.sromku.simple.fb.actions;
 
-import org.json.JSONException;
-import org.json.JSONObject;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Set;
+
+import android.os.AsyncTask;
+import android.os.Bundle;
 
 import com.facebook.FacebookRequestError;
 import com.facebook.HttpMethod;
 import com.facebook.Request;
-import com.facebook.RequestAsyncTask;
+import com.facebook.RequestBatch;
 import com.facebook.Response;
 import com.facebook.Session;
-import com.facebook.model.GraphObject;
 import com.sromku.simple.fb.Permission;
 import com.sromku.simple.fb.SessionManager;
+import com.sromku.simple.fb.entities.Photo;
 import com.sromku.simple.fb.entities.Publishable;
+import com.sromku.simple.fb.entities.Story;
 import com.sromku.simple.fb.listeners.OnPublishListener;
 import com.sromku.simple.fb.listeners.OnReopenSessionListener;
+import com.sromku.simple.fb.listeners.OnThinkingListetener;
 import com.sromku.simple.fb.utils.Errors;
 import com.sromku.simple.fb.utils.Errors.ErrorMsg;
 import com.sromku.simple.fb.utils.Logger;
+import com.sromku.simple.fb.utils.Utils;
 
 public class PublishAction extends AbstractAction {
 
@@ -41,8 +49,24 @@ public class PublishAction extends AbstractAction {
 		mOnPublishListener = onPublishListener;
 	}
 
+	protected String getTarget() {
+		return mTarget;
+	}
+
+	/**
+	 * The graph path of the item, where stories are published to the
+	 * namespace of this client
+	 */
+	protected String getPath(Publishable publishable) {
+		if (publishable instanceof Story) {
+			return ((Story) publishable).getPath(configuration);
+		}
+		return publishable.getPath();
+	}
+
 	@Override
 	protected void executeImpl() {
+		OnThinkingListetener listener = getListener();
 		if (sessionManager.isLogin(true)) {
 			if (sessionManager.canMakeAdditionalRequest()) {
 				// if we defined the publish permission
@@ -52,97 +76,144 @@ public class PublishAction extends AbstractAction {
 				 * extended permissions in runtime, but we don't have these
 				 * permissions in the configuration
 				 */
-				if (configuration.getPublishPermissions().contains(mPublishable.getPermission().getValue())
-						|| sessionManager.getActiveSessionPermissions().contains(mPublishable.getPermission().getValue())) {
-					if (mOnPublishListener != null) {
-						mOnPublishListener.onThinking();
+				Set<Permission> grantedPermissions = sessionManager.getGrantedPermissions();
+				boolean granted = true;
+				for (Permission permission : getPermissions()) {
+					if (!configuration.isPublishPermission(permission) && !grantedPermissions.contains(permission)) {
+						String reason = Errors.getError(ErrorMsg.PERMISSIONS_PUBLISH, permission.getValue());
+						Logger.logError(PublishAction.class, reason, null);
+						if (listener != null) {
+							listener.onFail(reason);
+						}
+						return;
 					}
+					granted &= grantedPermissions.contains(permission);
+				}
 
-					/*
-					 * Check if session to facebook has needed publish
-					 * permission. If not, we will ask user for this permission.
-					 */
-					if (!sessionManager.getActiveSessionPermissions().contains(mPublishable.getPermission().getValue())) {
-						sessionManager.getSessionStatusCallback().setOnReopenSessionListener(new OnReopenSessionListener() {
-							@Override
-							public void onSuccess() {
-								publishImpl(mPublishable, mOnPublishListener);
-							}
+				if (listener != null) {
+					listener.onThinking();
+				}
 
-							@Override
-							public void onNotAcceptingPermissions(Permission.Type type) {
-								String reason = Errors.getError(ErrorMsg.CANCEL_PERMISSIONS_PUBLISH, String.valueOf(configuration.getPublishPermissions()));
-								Logger.logError(PublishAction.class, reason, null);
-								if (mOnPublishListener != null) {
-									mOnPublishListener.onFail(reason);
-								}
+				/*
+				 * Check if session to facebook has needed publish permission.
+				 * If not, we will ask user for this permission. Headless
+				 * managers can't ask, so Facebook decides on the token as is.
+				 */
+				if (!granted && sessionManager.getActivity() != null) {
+					sessionManager.getSessionStatusCallback().setOnReopenSessionListener(new OnReopenSessionListener() {
+						@Override
+						public void onSuccess() {
+							publish();
+						}
+
+						@Override
+						public void onNotAcceptingPermissions(Permission.Type type) {
+							String reason = Errors.getError(ErrorMsg.CANCEL_PERMISSIONS_PUBLISH, String.valueOf(configuration.getPublishPermissions()));
+							Logger.logError(PublishAction.class, reason, null);
+							OnThinkingListetener listener = getListener();
+							if (listener != null) {
+								listener.onFail(reason);
 							}
-						});
-						sessionManager.extendPublishPermissions();
-					}
-					else {
-						publishImpl(mPublishable, mOnPublishListener);
-					}
+						}
+					});
+					sessionManager.extendPublishPermissions();
 				}
 				else {
-					String reason = Errors.getError(ErrorMsg.PERMISSIONS_PUBLISH, mPublishable.getPermission().getValue());
-					Logger.logError(PublishAction.class, reason, null);
-					if (mOnPublishListener != null) {
-						mOnPublishListener.onFail(reason);
-					}
+					publish();
 				}
 			}
 			else {
-				return;
+				String reason = Errors.getError(ErrorMsg.PENDING_REQUEST);
+				Logger.logError(PublishAction.class, reason, null);
+				if (listener != null) {
+					listener.onFail(reason);
+				}
 			}
 		}
 		else {
-			if (mOnPublishListener != null) {
+			if (listener != null) {
 				String reason = Errors.getError(ErrorMsg.LOGIN);
 				Logger.logError(PublishAction.class, reason, null);
-				mOnPublishListener.onFail(reason);
+				listener.onFail(reason);
 			}
 		}
 	}
 
-	private void publishImpl(Publishable publishable, final OnPublishListener onPublishListener) {
-		Session session = sessionManager.getActiveSession();
-		Request request = new Request(session, mTarget + "/" + publishable.getPath(), publishable.getBundle(), HttpMethod.POST, new Request.Callback() {
-			@Override
-			public void onCompleted(Response response) {
-				GraphObject graphObject = response.getGraphObject();
-				if (graphObject != null) {
-					JSONObject graphResponse = graphObject.getInnerJSONObject();
-					String postId = null;
+	/**
+	 * The permissions that are needed for publishing
+	 */
+	protected Collection<Permission> getPermissions() {
+		return Collections.singletonList(mPublishable.getPermission());
+	}
+
+	/**
+	 * The listener to notify about permissions and login failures
+	 */
+	protected OnThinkingListetener getListener() {
+		return mOnPublishListener;
+	}
+
+	/**
+	 * Called when all permissions were granted
+	 */
+	protected void publish() {
+		publishImpl(mPublishable, mOnPublishListener);
+	}
+
+	protected void publishImpl(final Publishable publishable, final OnPublishListener onPublishListener) {
+		if (publishable instanceof Photo && ((Photo) publishable).isSpoolRequired()) {
+			// write the image to a file off the main thread, then upload it
+			executeTask(new AsyncTask<Void, Void, Bundle>() {
+				private IOException mError = null;
+
+				@Override
+				protected Bundle doInBackground(Void... params) {
 					try {
-						postId = graphResponse.getString("id");
+						return ((Photo) publishable).spool(sessionManager.getCacheDir());
 					}
-					catch (JSONException e) {
-						Logger.logError(PublishAction.class, "JSON error", e);
+					catch (IOException e) {
+						mError = e;
+						return null;
 					}
-					FacebookRequestError error = response.getError();
-					if (error != null) {
-						Logger.logError(PublishAction.class, "Failed to publish", error.getException());
+				}
+
+				@Override
+				protected void onPostExecute(Bundle bundle) {
+					if (mError != null) {
+						Logger.logError(PublishAction.class, "Failed to prepare the photo", mError);
 						if (onPublishListener != null) {
-							onPublishListener.onException(error.getException());
+							onPublishListener.onException(mError);
 						}
+						return;
 					}
-					else {
-						if (onPublishListener != null) {
-							onPublishListener.onComplete(postId);
-						}
+					post(publishable, bundle, onPublishListener);
+				}
+			});
+			return;
+		}
+		post(publishable, publishable.getBundle(), onPublishListener);
+	}
+
+	private void post(Publishable publishable, Bundle bundle, final OnPublishListener onPublishListener) {
+		Session session = sessionManager.getActiveSession();
+		Request request = new Request(session, mTarget + "/" + getPath(publishable), bundle, HttpMethod.POST, new Request.Callback() {
+			@Override
+			public void onCompleted(Response response) {
+				FacebookRequestError error = response.getError();
+				if (error != null) {
+					Logger.logError(PublishAction.class, "Failed to publish", error.getException());
+					if (onPublishListener != null) {
+						onPublishListener.onException(error.getException());
 					}
 				}
 				else {
-					Logger.logError(PublishAction.class, "The GraphObject in Response of publish action has null value. Response=" + response.toString(), null);
 					if (onPublishListener != null) {
-						onPublishListener.onComplete("0");
+						onPublishListener.onComplete(Utils.getPostId(response));
 					}
 				}
 			}
 		});
-		RequestAsyncTask task = new RequestAsyncTask(request);
-		task.execute();
+		executeBatch(new RequestBatch(request));
 	}
 
 }
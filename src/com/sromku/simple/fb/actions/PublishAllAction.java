@@ -0,0 +1,201 @@
+package com.sromku.simple.fb.actions;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import android.os.AsyncTask;
+import android.os.Bundle;
+
+import com.facebook.FacebookRequestError;
+import com.facebook.HttpMethod;
+import com.facebook.Request;
+import com.facebook.RequestBatch;
+import com.facebook.Response;
+import com.facebook.Session;
+import com.sromku.simple.fb.Permission;
+import com.sromku.simple.fb.SessionManager;
+import com.sromku.simple.fb.entities.Photo;
+import com.sromku.simple.fb.entities.Publishable;
+import com.sromku.simple.fb.listeners.OnPublishAllListener;
+import com.sromku.simple.fb.listeners.OnThinkingListetener;
+import com.sromku.simple.fb.utils.Logger;
+import com.sromku.simple.fb.utils.Utils;
+
+/**
+ * Publish many items to the same target. Permissions are checked once for
+ * all items, and the items are sent as Graph batches of up to
+ * {@link #MAX_BATCH_SIZE} requests, with binary parts (like photos)
+ * attached to the batch. <br>
+ * <br>
+ * The callbacks of the batches may run on several threads at once, like
+ * with {@link com.sromku.simple.fb.utils.ConnectionTransport}, and the
+ * listener is called on these threads.
+ */
+public class PublishAllAction extends PublishAction {
+
+	public static final int MAX_BATCH_SIZE = 50;
+
+	private List<? extends Publishable> mPublishables;
+	private OnPublishAllListener mOnPublishAllListener;
+
+	private List<String> mPostIds;
+	private final AtomicInteger mPendingBatches = new AtomicInteger();
+
+	public PublishAllAction(SessionManager sessionManager) {
+		super(sessionManager);
+	}
+
+	public void setPublishables(List<? extends Publishable> publishables) {
+		mPublishables = publishables;
+	}
+
+	public void setOnPublishAllListener(OnPublishAllListener onPublishAllListener) {
+		mOnPublishAllListener = onPublishAllListener;
+	}
+
+	protected List<? extends Publishable> getPublishables() {
+		return mPublishables;
+	}
+
+	protected OnPublishAllListener getOnPublishAllListener() {
+		return mOnPublishAllListener;
+	}
+
+	@Override
+	protected Collection<Permission> getPermissions() {
+		Set<Permission> permissions = new LinkedHashSet<Permission>();
+		for (Publishable publishable : mPublishables) {
+			permissions.add(publishable.getPermission());
+		}
+		return permissions;
+	}
+
+	@Override
+	protected OnThinkingListetener getListener() {
+		return mOnPublishAllListener;
+	}
+
+	@Override
+	protected void publish() {
+		List<String> postIds = new ArrayList<String>(mPublishables.size());
+		for (int i = 0; i < mPublishables.size(); i++) {
+			postIds.add(null);
+		}
+		mPostIds = Collections.synchronizedList(postIds);
+		if (mPublishables.size() == 0) {
+			if (mOnPublishAllListener != null) {
+				mOnPublishAllListener.onComplete(mPostIds);
+			}
+			return;
+		}
+
+		// photos from streams must be written to files before sending
+		final Bundle[] bundles = new Bundle[mPublishables.size()];
+		executeTask(new AsyncTask<Void, Void, IOException[]>() {
+			@Override
+			protected IOException[] doInBackground(Void... params) {
+				IOException[] failures = new IOException[mPublishables.size()];
+				for (int i = 0; i < failures.length; i++) {
+					Publishable publishable = mPublishables.get(i);
+					if (publishable instanceof Photo && ((Photo) publishable).isSpoolRequired()) {
+						try {
+							bundles[i] = ((Photo) publishable).spool(sessionManager.getCacheDir());
+						}
+						catch (IOException e) {
+							failures[i] = e;
+						}
+					}
+				}
+				return failures;
+			}
+
+			@Override
+			protected void onPostExecute(IOException[] failures) {
+				List<Integer> indexes = new ArrayList<Integer>(failures.length);
+				for (int i = 0; i < failures.length; i++) {
+					if (failures[i] == null) {
+						indexes.add(i);
+						continue;
+					}
+					// the photo has no image, so it isn't sent
+					Logger.logError(PublishAllAction.class, "Failed to prepare the photo " + i, failures[i]);
+					if (mOnPublishAllListener != null) {
+						mOnPublishAllListener.onItemException(i, failures[i]);
+					}
+				}
+				sendBatches(indexes, bundles);
+			}
+		});
+	}
+
+	/**
+	 * @param bundles
+	 *            The bundles of spooled photos, by the index of the item
+	 */
+	private void sendBatches(List<Integer> indexes, Bundle[] bundles) {
+		if (indexes.size() == 0) {
+			if (mOnPublishAllListener != null) {
+				mOnPublishAllListener.onComplete(mPostIds);
+			}
+			return;
+		}
+
+		Session session = sessionManager.getActiveSession();
+		List<RequestBatch> batches = new ArrayList<RequestBatch>();
+		for (int start = 0; start < indexes.size(); start += MAX_BATCH_SIZE) {
+			RequestBatch batch = new RequestBatch();
+			int end = Math.min(start + MAX_BATCH_SIZE, indexes.size());
+			for (int i = start; i < end; i++) {
+				int index = indexes.get(i);
+				Publishable publishable = mPublishables.get(index);
+				Bundle bundle = bundles[index] != null ? bundles[index] : publishable.getBundle();
+				batch.add(new Request(session, getTarget() + "/" + getPath(publishable), bundle, HttpMethod.POST, new ItemCallback(index)));
+			}
+			batch.addCallback(new RequestBatch.Callback() {
+				@Override
+				public void onBatchCompleted(RequestBatch batch) {
+					if (mPendingBatches.decrementAndGet() == 0 && mOnPublishAllListener != null) {
+						mOnPublishAllListener.onComplete(mPostIds);
+					}
+				}
+			});
+			batches.add(batch);
+		}
+		mPendingBatches.set(batches.size());
+		for (RequestBatch batch : batches) {
+			executeBatch(batch);
+		}
+	}
+
+	private class ItemCallback implements Request.Callback {
+
+		private final int mIndex;
+
+		ItemCallback(int index) {
+			mIndex = index;
+		}
+
+		@Override
+		public void onCompleted(Response response) {
+			FacebookRequestError error = response.getError();
+			if (error != null) {
+				Logger.logError(PublishAllAction.class, "Failed to publish item " + mIndex, error.getException());
+				if (mOnPublishAllListener != null) {
+					mOnPublishAllListener.onItemException(mIndex, error.getException());
+				}
+				return;
+			}
+			String postId = Utils.getPostId(response);
+			mPostIds.set(mIndex, postId);
+			if (mOnPublishAllListener != null) {
+				mOnPublishAllListener.onItemComplete(mIndex, postId);
+			}
+		}
+	}
+}
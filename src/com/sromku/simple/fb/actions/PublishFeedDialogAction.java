@@ -4,7 +4,6 @@ import android.os.Bundle;
 
 import com.facebook.FacebookException;
 import com.facebook.FacebookOperationCanceledException;
-import com.facebook.Session;
 import com.facebook.widget.FacebookDialog;
 import com.facebook.widget.FacebookDialog.PendingCall;
 import com.facebook.widget.FacebookDialog.ShareDialogFeature;
@@ -37,6 +36,14 @@ public class PublishFeedDialogAction extends AbstractAction {
 
 	@Override
 	protected void executeImpl() {
+		if (sessionManager.getActivity() == null) {
+			String reason = Errors.getError(ErrorMsg.DIALOG_ACTIVITY);
+			Logger.logError(PublishFeedDialogAction.class, reason, null);
+			if (mOnPublishListener != null) {
+				mOnPublishListener.onFail(reason);
+			}
+			return;
+		}
 		if (sessionManager.isLogin(true)) {
 			if (FacebookDialog.canPresentShareDialog(sessionManager.getActivity(), ShareDialogFeature.SHARE_DIALOG)) {
 				FacebookDialog shareDialog = new FacebookDialog.ShareDialogBuilder(sessionManager.getActivity())
@@ -87,7 +94,7 @@ public class PublishFeedDialogAction extends AbstractAction {
 	}
 
 	private void shareWithWebDialog() {
-		WebDialog feedDialog = (new WebDialog.FeedDialogBuilder(sessionManager.getActivity(), Session.getActiveSession(), mFeed.getBundle())).setOnCompleteListener(new OnCompleteListener() {
+		WebDialog feedDialog = (new WebDialog.FeedDialogBuilder(sessionManager.getActivity(), sessionManager.getActiveSession(), mFeed.getBundle())).setOnCompleteListener(new OnCompleteListener() {
 			@Override
 			public void onComplete(Bundle values, FacebookException error) {
 				if (error == null) {
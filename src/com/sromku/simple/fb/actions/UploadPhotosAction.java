@@ -0,0 +1,256 @@
+package com.sromku.simple.fb.actions;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import android.graphics.Bitmap;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.ParcelFileDescriptor;
+import android.os.SystemClock;
+
+import com.facebook.FacebookRequestError;
+import com.facebook.HttpMethod;
+import com.facebook.Request;
+import com.facebook.RequestBatch;
+import com.facebook.Response;
+import com.facebook.Session;
+import com.sromku.simple.fb.SessionManager;
+import com.sromku.simple.fb.entities.Photo;
+import com.sromku.simple.fb.entities.Publishable;
+import com.sromku.simple.fb.listeners.OnPublishAllListener;
+import com.sromku.simple.fb.utils.Logger;
+import com.sromku.simple.fb.utils.Utils;
+
+/**
+ * Upload many photos over parallel connections. The number of parallel
+ * uploads is tuned by the measured throughput: it starts with
+ * {@link #INITIAL_CONCURRENCY} uploads, and after each round it moves one step
+ * up or down, keeping the direction while the throughput grows and reversing
+ * it when the throughput drops. <br>
+ * <br>
+ * Photos are prepared on the executor of the session manager and sent by its
+ * transport. The sent bytes are recorded to the
+ * {@link com.sromku.simple.fb.utils.TransferStats} of the session manager.
+ */
+public class UploadPhotosAction extends PublishAllAction {
+
+	public static final int INITIAL_CONCURRENCY = 2;
+	public static final int MIN_CONCURRENCY = 1;
+	public static final int MAX_CONCURRENCY = 6;
+
+	// the throughput must grow by this factor to keep the direction
+	private static final float MIN_GAIN = 1.1f;
+
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+	// accessed on the main thread only
+	private List<String> mPostIds;
+	private int mNext = 0;
+	private int mRunning = 0;
+	private int mDone = 0;
+	private int mConcurrency = INITIAL_CONCURRENCY;
+	private int mDirection = 1;
+	private long mUploadedBytes = 0;
+	private long mTotalBytes = 0;
+	private int mOpened = 0;
+
+	// the current measurement round
+	private long mRoundStart = 0;
+	private long mRoundBytes = 0;
+	private int mRoundCount = 0;
+	private float mLastThroughput = 0;
+
+	public UploadPhotosAction(SessionManager sessionManager) {
+		super(sessionManager);
+	}
+
+	@Override
+	protected void publish() {
+		List<? extends Publishable> photos = getPublishables();
+		mPostIds = new ArrayList<String>(photos.size());
+		for (int i = 0; i < photos.size(); i++) {
+			mPostIds.add(null);
+		}
+		if (photos.size() == 0) {
+			complete();
+			return;
+		}
+		mRoundStart = SystemClock.elapsedRealtime();
+		dispatch();
+	}
+
+	/**
+	 * Start uploads until the concurrency limit is reached
+	 */
+	private void dispatch() {
+		final List<? extends Publishable> photos = getPublishables();
+		while (mRunning < mConcurrency && mNext < photos.size()) {
+			final int index = mNext++;
+			mRunning++;
+			getExecutor().execute(new Runnable() {
+				@Override
+				public void run() {
+					prepare(index, photos.get(index));
+				}
+			});
+		}
+	}
+
+	/**
+	 * Runs on the executor thread. The photo is read or spooled here, and
+	 * then sent from the main thread.
+	 */
+	private void prepare(final int index, final Publishable publishable) {
+		try {
+			final Bundle bundle;
+			if (publishable instanceof Photo && ((Photo) publishable).isSpoolRequired()) {
+				bundle = ((Photo) publishable).spool(sessionManager.getCacheDir());
+			}
+			else {
+				bundle = publishable.getBundle();
+			}
+			final long bytes = getSize(bundle);
+			mHandler.post(new Runnable() {
+				@Override
+				public void run() {
+					mTotalBytes += bytes;
+					mOpened++;
+					upload(index, publishable, bundle, bytes);
+				}
+			});
+		}
+		catch (final Throwable e) {
+			mHandler.post(new Runnable() {
+				@Override
+				public void run() {
+					onUploaded(index, 0, null, e);
+				}
+			});
+		}
+	}
+
+	private void upload(final int index, Publishable publishable, Bundle bundle, final long bytes) {
+		Session session = sessionManager.getActiveSession();
+		final String graphPath = getTarget() + "/" + getPath(publishable);
+		executeBatch(new RequestBatch(new Request(session, graphPath, bundle, HttpMethod.POST, new Request.Callback() {
+			@Override
+			public void onCompleted(final Response response) {
+				if (response.getError() == null) {
+					sessionManager.getTransferStats().recordUpload(graphPath, bytes);
+				}
+				// the transport may call back on its own thread
+				mHandler.post(new Runnable() {
+					@Override
+					public void run() {
+						onUploaded(index, bytes, response, null);
+					}
+				});
+			}
+		})));
+	}
+
+	private void onUploaded(int index, long bytes, Response response, Throwable error) {
+		mRunning--;
+		mDone++;
+		OnPublishAllListener listener = getOnPublishAllListener();
+
+		if (error == null && response.getError() != null) {
+			FacebookRequestError requestError = response.getError();
+			error = requestError.getException();
+		}
+		if (error != null) {
+			Logger.logError(UploadPhotosAction.class, "Failed to upload photo " + index, error);
+			if (listener != null) {
+				listener.onItemException(index, error);
+			}
+		}
+		else {
+			String postId = Utils.getPostId(response);
+			mPostIds.set(index, postId);
+			mUploadedBytes += bytes;
+			mRoundBytes += bytes;
+			if (listener != null) {
+				listener.onItemComplete(index, postId);
+			}
+		}
+
+		if (listener != null) {
+			listener.onProgress(mUploadedBytes, getEstimatedTotalBytes());
+		}
+
+		mRoundCount++;
+		if (mRoundCount >= mConcurrency) {
+			tune();
+		}
+
+		if (mDone == getPublishables().size()) {
+			complete();
+		}
+		else {
+			dispatch();
+		}
+	}
+
+	/**
+	 * Hill climbing on the throughput of the last round
+	 */
+	private void tune() {
+		long elapsed = Math.max(1, SystemClock.elapsedRealtime() - mRoundStart);
+		float throughput = (float) mRoundBytes / elapsed;
+		if (mLastThroughput > 0 && throughput < mLastThroughput * MIN_GAIN) {
+			mDirection = -mDirection;
+		}
+		int concurrency = mConcurrency + mDirection;
+		if (concurrency < MIN_CONCURRENCY || concurrency > MAX_CONCURRENCY) {
+			mDirection = -mDirection;
+			concurrency = mConcurrency + mDirection;
+		}
+		Logger.logInfo(UploadPhotosAction.class, "Throughput " + throughput + " bytes/ms with " + mConcurrency + " uploads, next round with " + concurrency);
+		mConcurrency = concurrency;
+		mLastThroughput = throughput;
+		mRoundStart = SystemClock.elapsedRealtime();
+		mRoundBytes = 0;
+		mRoundCount = 0;
+	}
+
+	/**
+	 * The sizes of photos are known when they are opened, so the total is
+	 * extrapolated from the average of the known sizes
+	 */
+	private long getEstimatedTotalBytes() {
+		if (mOpened == 0) {
+			return 0;
+		}
+		return mTotalBytes * getPublishables().size() / mOpened;
+	}
+
+	private void complete() {
+		OnPublishAllListener listener = getOnPublishAllListener();
+		if (listener != null) {
+			listener.onComplete(mPostIds);
+		}
+	}
+
+	private static long getSize(Bundle bundle) {
+		long size = 0;
+		for (String key : bundle.keySet()) {
+			Object value = bundle.get(key);
+			if (value instanceof byte[]) {
+				size += ((byte[]) value).length;
+			}
+			else if (value instanceof ParcelFileDescriptor) {
+				size += Math.max(0, ((ParcelFileDescriptor) value).getStatSize());
+			}
+			else if (value instanceof Bitmap) {
+				Bitmap bitmap = (Bitmap) value;
+				size += bitmap.getRowBytes() * bitmap.getHeight();
+			}
+			else if (value != null) {
+				size += String.valueOf(value).length();
+			}
+		}
+		return size;
+	}
+}
@@ -0,0 +1,241 @@
+package com.sromku.simple.fb.actions;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import android.os.AsyncTask;
+import android.os.Bundle;
+
+import com.facebook.FacebookException;
+import com.facebook.FacebookRequestError;
+import com.facebook.HttpMethod;
+import com.facebook.Request;
+import com.facebook.Response;
+import com.facebook.Session;
+import com.facebook.model.GraphObject;
+import com.sromku.simple.fb.SessionManager;
+import com.sromku.simple.fb.entities.Publishable;
+import com.sromku.simple.fb.entities.Video;
+import com.sromku.simple.fb.listeners.OnPublishListener;
+import com.sromku.simple.fb.listeners.OnUploadListener;
+import com.sromku.simple.fb.utils.Errors;
+import com.sromku.simple.fb.utils.GraphPath;
+import com.sromku.simple.fb.utils.Logger;
+import com.sromku.simple.fb.utils.Utils;
+
+/**
+ * Upload video by the resumable upload protocol of Graph API. The upload
+ * session is started, then the file is sent chunk by chunk in the ranges
+ * that Facebook asks for, and then the session is finished with the video
+ * metadata. <br>
+ * <br>
+ * Only one chunk is read from the disk at a time. Failed chunks are retried
+ * a few times, and if the upload still fails, it can be resumed from the last
+ * accepted offset by {@link #resume()}.
+ *
+ * @see https://developers.facebook.com/docs/graph-api/video-uploads
+ */
+public class UploadVideoAction extends PublishAction {
+
+	private static final String UPLOAD_PHASE = "upload_phase";
+	private static final String PHASE_START = "start";
+	private static final String PHASE_TRANSFER = "transfer";
+	private static final String PHASE_FINISH = "finish";
+	private static final String FILE_SIZE = "file_size";
+	private static final String UPLOAD_SESSION_ID = "upload_session_id";
+	private static final String VIDEO_ID = "video_id";
+	private static final String START_OFFSET = "start_offset";
+	private static final String END_OFFSET = "end_offset";
+	private static final String VIDEO_FILE_CHUNK = "video_file_chunk";
+	private static final String SUCCESS = "success";
+
+	private static final int MAX_RETRIES = 3;
+	private static final long RETRY_DELAY = 2000;
+
+	private Video mVideo;
+	private OnUploadListener mOnUploadListener;
+
+	// the state of upload session, kept for resume
+	private String mUploadSessionId = null;
+	private String mVideoId = null;
+	private long mStartOffset = 0;
+	private long mEndOffset = 0;
+	private boolean mRunning = false;
+	private boolean mCompleted = false;
+
+	public UploadVideoAction(SessionManager sessionManager) {
+		super(sessionManager);
+	}
+
+	public void setVideo(Video video) {
+		mVideo = video;
+		setPublishable(video);
+	}
+
+	public void setOnUploadListener(OnUploadListener onUploadListener) {
+		mOnUploadListener = onUploadListener;
+		setOnPublishListener(onUploadListener);
+		if (onUploadListener != null) {
+			onUploadListener.setUploadAction(this);
+		}
+	}
+
+	/**
+	 * Return <code>True</code> if the upload was started, failed and not
+	 * running now.
+	 */
+	public boolean canResume() {
+		return mUploadSessionId != null && !mRunning && !mCompleted;
+	}
+
+	/**
+	 * Continue the upload from the last offset that was accepted by Facebook
+	 */
+	public void resume() {
+		if (mRunning || mCompleted) {
+			return;
+		}
+		execute();
+	}
+
+	@Override
+	protected void publishImpl(Publishable publishable, OnPublishListener onPublishListener) {
+		File file = mVideo.getFile();
+		if (file == null || !file.exists()) {
+			String reason = "The video file doesn't exist: " + file;
+			Logger.logError(UploadVideoAction.class, reason, null);
+			if (mOnUploadListener != null) {
+				mOnUploadListener.onFail(reason);
+			}
+			return;
+		}
+		mRunning = true;
+		executeTask(new UploadTask(sessionManager.getActiveSession(), file));
+	}
+
+	private class UploadTask extends AsyncTask<Void, Long, Throwable> {
+
+		private final Session mSession;
+		private final File mFile;
+
+		UploadTask(Session session, File file) {
+			mSession = session;
+			mFile = file;
+		}
+
+		@Override
+		protected Throwable doInBackground(Void... params) {
+			try {
+				long fileSize = mFile.length();
+				if (mUploadSessionId == null) {
+					start(fileSize);
+				}
+				transfer(fileSize);
+				finish();
+				return null;
+			}
+			catch (Throwable e) {
+				return e;
+			}
+		}
+
+		@Override
+		protected void onProgressUpdate(Long... values) {
+			if (mOnUploadListener != null) {
+				mOnUploadListener.onProgress(values[0], values[1]);
+			}
+		}
+
+		@Override
+		protected void onPostExecute(Throwable error) {
+			mRunning = false;
+			if (error != null) {
+				Logger.logError(UploadVideoAction.class, "Failed to upload video at offset " + mStartOffset, error);
+				if (mOnUploadListener != null) {
+					mOnUploadListener.onException(error);
+				}
+				return;
+			}
+			mCompleted = true;
+			if (mOnUploadListener != null) {
+				mOnUploadListener.onComplete(mVideoId);
+			}
+		}
+
+		private void start(long fileSize) {
+			Bundle bundle = new Bundle();
+			bundle.putString(UPLOAD_PHASE, PHASE_START);
+			bundle.putString(FILE_SIZE, String.valueOf(fileSize));
+			GraphObject graphObject = post(bundle);
+			mUploadSessionId = Utils.getPropertyString(graphObject, UPLOAD_SESSION_ID);
+			mVideoId = Utils.getPropertyString(graphObject, VIDEO_ID);
+			updateOffsets(graphObject);
+		}
+
+		private void transfer(long fileSize) throws IOException {
+			RandomAccessFile file = new RandomAccessFile(mFile, "r");
+			try {
+				publishProgress(mStartOffset, fileSize);
+				while (mStartOffset < mEndOffset) {
+					byte[] chunk = new byte[(int) (mEndOffset - mStartOffset)];
+					file.seek(mStartOffset);
+					file.readFully(chunk);
+
+					Bundle bundle = new Bundle();
+					bundle.putString(UPLOAD_PHASE, PHASE_TRANSFER);
+					bundle.putString(UPLOAD_SESSION_ID, mUploadSessionId);
+					bundle.putString(START_OFFSET, String.valueOf(mStartOffset));
+					bundle.putByteArray(VIDEO_FILE_CHUNK, chunk);
+					updateOffsets(post(bundle));
+					publishProgress(mStartOffset, fileSize);
+				}
+			}
+			finally {
+				file.close();
+			}
+		}
+
+		private void finish() {
+			Bundle bundle = mVideo.getMetadataBundle();
+			bundle.putString(UPLOAD_PHASE, PHASE_FINISH);
+			bundle.putString(UPLOAD_SESSION_ID, mUploadSessionId);
+			GraphObject graphObject = post(bundle);
+			Object success = graphObject != null ? graphObject.getProperty(SUCCESS) : null;
+			if (!Boolean.TRUE.equals(success) && !"true".equals(String.valueOf(success))) {
+				throw new FacebookException("Failed to finish the video upload");
+			}
+		}
+
+		private void updateOffsets(GraphObject graphObject) {
+			mStartOffset = Long.parseLong(Utils.getPropertyString(graphObject, START_OFFSET));
+			mEndOffset = Long.parseLong(Utils.getPropertyString(graphObject, END_OFFSET));
+		}
+
+		/**
+		 * Post the bundle and retry on network and server errors
+		 */
+		private GraphObject post(Bundle bundle) {
+			String graphPath = getTarget() + "/" + GraphPath.VIDEOS;
+			long delay = RETRY_DELAY;
+			for (int attempt = 0;; attempt++) {
+				Response response = new Request(mSession, graphPath, new Bundle(bundle), HttpMethod.POST).executeAndWait();
+				FacebookRequestError error = response.getError();
+				if (error == null) {
+					return response.getGraphObject();
+				}
+				if (attempt >= MAX_RETRIES || !Errors.isTransient(error)) {
+					throw error.getException();
+				}
+				Logger.logWarning(UploadVideoAction.class, "Retrying " + bundle.getString(UPLOAD_PHASE) + " phase: " + error.getErrorMessage());
+				try {
+					Thread.sleep(delay);
+				}
+				catch (InterruptedException e) {
+					throw error.getException();
+				}
+				delay *= 2;
+			}
+		}
+	}
+}
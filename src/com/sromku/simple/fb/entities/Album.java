@@ -35,7 +35,7 @@ public class Album {
 	private Integer mCount = null;
 	private String mPrivacy = null;
 	private String mCoverPhotoId = null;
-	private String mType = null;
+	private AlbumType mType = null;
 	private long mCreatedTime;
 	private long mUpdatedTime;
 	private boolean mCanUpload;
@@ -68,13 +68,13 @@ public class Album {
 		mCount = Utils.getPropertyInteger(graphObject, COUNT);
 
 		// privacy
-		mPrivacy = Utils.getPropertyString(graphObject, PRIVACY);
+		mPrivacy = Utils.getPooledPropertyString(graphObject, PRIVACY);
 
 		// cover photo
 		mCoverPhotoId = Utils.getPropertyString(graphObject, COVER_PHOTO);
 
 		// type
-		mType = Utils.getPropertyString(graphObject, TYPE);
+		mType = AlbumType.fromValue(Utils.getPropertyString(graphObject, TYPE));
 
 		// created time
 		mCreatedTime = Utils.getPropertyLong(graphObject, CREATED_TIME);
@@ -190,7 +190,7 @@ public class Album {
 	 * 
 	 * @return The type of the album
 	 */
-	public String getType() {
+	public AlbumType getType() {
 		return mType;
 	}
 
@@ -226,4 +226,34 @@ public class Album {
 		return mCanUpload;
 	}
 
+	public enum AlbumType {
+		APP("app"),
+		COVER("cover"),
+		PROFILE("profile"),
+		MOBILE("mobile"),
+		WALL("wall"),
+		NORMAL("normal"),
+		ALBUM("album"),
+		UNKNOWN("unknown");
+
+		private String mValue;
+
+		private AlbumType(String value) {
+			mValue = value;
+		}
+
+		public String getValue() {
+			return mValue;
+		}
+
+		public static AlbumType fromValue(String value) {
+			for (AlbumType albumType : values()) {
+				if (albumType.mValue.equals(value)) {
+					return albumType;
+				}
+			}
+			return AlbumType.UNKNOWN;
+		}
+	}
+
 }
@@ -10,20 +10,27 @@ import com.sromku.simple.fb.utils.GraphPath;
 import com.sromku.simple.fb.utils.Logger;
 
 /**
- * The feed to be published on the wall
+ * The feed to be published on the wall.<br>
+ * <br>
+ * The feed is immutable. Its parameters are built once by {@link Builder}, so
+ * the same feed can be published many times and from many threads.
  * 
  * @author sromku
  * @see https://developers.facebook.com/docs/reference/dialogs/feed/
  */
 public class Feed implements Publishable {
-	private Bundle mBundle = null;
+	private final Bundle mBundle;
 
-	private Feed(Builder builder) {
-		this.mBundle = builder.mBundle;
+	private Feed(Bundle bundle) {
+		this.mBundle = bundle;
 	}
 
+	/**
+	 * Get a copy of the feed parameters. A copy is returned since the request
+	 * adds its own parameters to the bundle.
+	 */
 	public Bundle getBundle() {
-		return mBundle;
+		return new Bundle(mBundle);
 	}
 
 	public String getPath() {
@@ -204,17 +211,20 @@ public class Feed implements Publishable {
 		}
 
 		public Feed build() {
+			// the builder can still be changed and reused, so keep a copy
+			Bundle bundle = new Bundle(mBundle);
+
 			// add properties if needed
 			if (mProperties.length() > 0) {
-				mBundle.putString(Parameters.PROPERTIES, mProperties.toString());
+				bundle.putString(Parameters.PROPERTIES, mProperties.toString());
 			}
 
 			// add actions if needed
 			if (mActions.length() > 0) {
-				mBundle.putString(Parameters.ACTIONS, mActions.toString());
+				bundle.putString(Parameters.ACTIONS, mActions.toString());
 			}
 
-			return new Feed(this);
+			return new Feed(bundle);
 		}
 
 	}
@@ -0,0 +1,636 @@
+package com.sromku.simple.fb.entities;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.json.JSONObject;
+
+import com.facebook.model.GraphObject;
+import com.sromku.simple.fb.entities.Profile.Properties;
+import com.sromku.simple.fb.utils.Logger;
+import com.sromku.simple.fb.utils.Utils;
+
+/**
+ * Friends stored by columns instead of {@link Profile} objects. Each requested
+ * property is kept in one array: repeated values like gender or locale are
+ * dictionary encoded, numbers and flags are kept as primitives. <br>
+ * <br>
+ * Filtering, sorting and projection return a new table that shares the
+ * columns with this one and only holds the selected rows, so they are cheap
+ * even for thousands of friends. <br>
+ * <br>
+ * Supported properties are the single value ones, like:
+ * {@link Properties#ID}, {@link Properties#NAME}, {@link Properties#GENDER},
+ * {@link Properties#LOCALE}, {@link Properties#PICTURE},
+ * {@link Properties#LOCATION}, {@link Properties#INSTALLED},
+ * {@link Properties#TIMEZONE} and more. Properties with lists of values, like
+ * {@link Properties#EDUCATION}, are skipped.
+ */
+public class FriendTable {
+
+	private static final int TYPE_STRING = 0;
+	private static final int TYPE_DICTIONARY = 1;
+	private static final int TYPE_INTEGER = 2;
+	private static final int TYPE_BOOLEAN = 3;
+
+	private static final Map<String, Integer> COLUMN_TYPES = new HashMap<String, Integer>();
+	static {
+		COLUMN_TYPES.put(Properties.ID, TYPE_STRING);
+		COLUMN_TYPES.put(Properties.NAME, TYPE_STRING);
+		COLUMN_TYPES.put(Properties.FIRST_NAME, TYPE_STRING);
+		COLUMN_TYPES.put(Properties.MIDDLE_NAME, TYPE_STRING);
+		COLUMN_TYPES.put(Properties.LAST_NAME, TYPE_STRING);
+		COLUMN_TYPES.put(Properties.LINK, TYPE_STRING);
+		COLUMN_TYPES.put(Properties.USER_NAME, TYPE_STRING);
+		COLUMN_TYPES.put(Properties.THIRD_PARTY_ID, TYPE_STRING);
+		COLUMN_TYPES.put(Properties.UPDATED_TIME, TYPE_STRING);
+		COLUMN_TYPES.put(Properties.BIO, TYPE_STRING);
+		COLUMN_TYPES.put(Properties.BIRTHDAY, TYPE_STRING);
+		COLUMN_TYPES.put(Properties.EMAIL, TYPE_STRING);
+		COLUMN_TYPES.put(Properties.QUOTES, TYPE_STRING);
+		COLUMN_TYPES.put(Properties.WEBSITE, TYPE_STRING);
+		COLUMN_TYPES.put(Properties.PICTURE, TYPE_STRING);
+		COLUMN_TYPES.put(Properties.GENDER, TYPE_DICTIONARY);
+		COLUMN_TYPES.put(Properties.LOCALE, TYPE_DICTIONARY);
+		COLUMN_TYPES.put(Properties.RELATIONSHIP_STATUS, TYPE_DICTIONARY);
+		COLUMN_TYPES.put(Properties.RELIGION, TYPE_DICTIONARY);
+		COLUMN_TYPES.put(Properties.POLITICAL, TYPE_DICTIONARY);
+		COLUMN_TYPES.put(Properties.HOMETOWN, TYPE_DICTIONARY);
+		COLUMN_TYPES.put(Properties.LOCATION, TYPE_DICTIONARY);
+		COLUMN_TYPES.put(Properties.TIMEZONE, TYPE_INTEGER);
+		COLUMN_TYPES.put(Properties.INSTALLED, TYPE_BOOLEAN);
+		COLUMN_TYPES.put(Properties.VERIFIED, TYPE_BOOLEAN);
+	}
+
+	private final Map<String, Column> mColumns;
+	private final int[] mRows;
+
+	private FriendTable(Map<String, Column> columns, int[] rows) {
+		mColumns = columns;
+		mRows = rows;
+	}
+
+	/**
+	 * Create new table from the friends graph objects
+	 *
+	 * @param graphObjects
+	 *            The friends
+	 * @param properties
+	 *            The requested properties. If <code>null</code>, then
+	 *            {@link Properties#ID} and {@link Properties#NAME} are used.
+	 * @return {@link FriendTable}
+	 */
+	public static FriendTable create(List<? extends GraphObject> graphObjects, Properties properties) {
+		Collection<String> names;
+		if (properties != null) {
+			names = properties.getNames();
+		}
+		else {
+			names = new ArrayList<String>(2);
+			names.add(Properties.ID);
+			names.add(Properties.NAME);
+		}
+
+		int size = graphObjects.size();
+		Map<String, Column> columns = new LinkedHashMap<String, Column>();
+		for (String name : names) {
+			Integer type = COLUMN_TYPES.get(name);
+			if (type == null) {
+				Logger.logWarning(FriendTable.class, "The property '" + name + "' can't be stored in a column and will be skipped");
+				continue;
+			}
+			columns.put(name, createColumn(type, name, graphObjects));
+		}
+
+		int[] rows = new int[size];
+		for (int i = 0; i < size; i++) {
+			rows[i] = i;
+		}
+		return new FriendTable(columns, rows);
+	}
+
+	/**
+	 * The number of friends (rows) in the table
+	 */
+	public int size() {
+		return mRows.length;
+	}
+
+	/**
+	 * The names of the columns in this table
+	 */
+	public Set<String> getColumns() {
+		return Collections.unmodifiableSet(mColumns.keySet());
+	}
+
+	/**
+	 * Get the value of the column in the row
+	 *
+	 * @param row
+	 *            The row index
+	 * @param column
+	 *            The column name. For example: {@link Properties#NAME}
+	 * @return The value or <code>null</code>
+	 */
+	public String getString(int row, String column) {
+		Object value = getColumn(column).get(mRows[row]);
+		return value != null ? String.valueOf(value) : null;
+	}
+
+	/**
+	 * Get the integer value of the column in the row, like
+	 * {@link Properties#TIMEZONE}
+	 */
+	public Integer getInteger(int row, String column) {
+		Object value = getColumn(column).get(mRows[row]);
+		return value instanceof Integer ? (Integer) value : null;
+	}
+
+	/**
+	 * Get the boolean value of the column in the row, like
+	 * {@link Properties#INSTALLED}
+	 */
+	public Boolean getBoolean(int row, String column) {
+		Object value = getColumn(column).get(mRows[row]);
+		return value instanceof Boolean ? (Boolean) value : null;
+	}
+
+	/**
+	 * Get the id of the friend in the row
+	 */
+	public String getId(int row) {
+		return getString(row, Properties.ID);
+	}
+
+	/**
+	 * Get the name of the friend in the row
+	 */
+	public String getName(int row) {
+		return getString(row, Properties.NAME);
+	}
+
+	/**
+	 * Get the distinct values of dictionary encoded column, like
+	 * {@link Properties#GENDER} or {@link Properties#LOCALE}. Other columns
+	 * return an empty list.
+	 */
+	public List<String> getDistinctValues(String column) {
+		Column col = getColumn(column);
+		if (col instanceof DictionaryColumn) {
+			return Collections.unmodifiableList(((DictionaryColumn) col).mDictionary);
+		}
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Select the rows where the column equals to the value.
+	 *
+	 * @param column
+	 *            The column name
+	 * @param value
+	 *            The value. For integer and boolean columns pass
+	 *            {@link Integer} or {@link Boolean}. Can be <code>null</code>
+	 * @return New table with the selected rows
+	 */
+	public FriendTable whereEquals(String column, Object value) {
+		Column col = getColumn(column);
+		int[] selected = new int[mRows.length];
+		int count = 0;
+		if (col instanceof DictionaryColumn) {
+			DictionaryColumn dictionaryColumn = (DictionaryColumn) col;
+			int code = value == null ? DictionaryColumn.NULL_CODE : dictionaryColumn.codeOf(String.valueOf(value));
+			if (value != null && code == DictionaryColumn.NULL_CODE) {
+				return new FriendTable(mColumns, new int[0]);
+			}
+			int[] codes = dictionaryColumn.mCodes;
+			for (int row : mRows) {
+				if (codes[row] == code) {
+					selected[count++] = row;
+				}
+			}
+		}
+		else {
+			for (int row : mRows) {
+				Object rowValue = col.get(row);
+				if (value == null ? rowValue == null : value.equals(rowValue)) {
+					selected[count++] = row;
+				}
+			}
+		}
+		return new FriendTable(mColumns, trim(selected, count));
+	}
+
+	/**
+	 * Select the rows where the column contains the text, ignoring the case.
+	 * Useful for searching friends by {@link Properties#NAME}.
+	 *
+	 * @param column
+	 *            The column name
+	 * @param text
+	 *            The text to search
+	 * @return New table with the selected rows
+	 */
+	public FriendTable whereContains(String column, String text) {
+		Column col = getColumn(column);
+		int[] selected = new int[mRows.length];
+		int count = 0;
+		int length = text.length();
+		for (int row : mRows) {
+			Object value = col.get(row);
+			if (value == null) {
+				continue;
+			}
+			String rowValue = String.valueOf(value);
+			for (int i = 0, last = rowValue.length() - length; i <= last; i++) {
+				if (rowValue.regionMatches(true, i, text, 0, length)) {
+					selected[count++] = row;
+					break;
+				}
+			}
+		}
+		return new FriendTable(mColumns, trim(selected, count));
+	}
+
+	/**
+	 * Select the rows accepted by the filter
+	 *
+	 * @param filter
+	 *            The filter
+	 * @return New table with the selected rows
+	 */
+	public FriendTable where(Filter filter) {
+		int[] selected = new int[mRows.length];
+		int count = 0;
+		for (int i = 0; i < mRows.length; i++) {
+			if (filter.accept(this, i)) {
+				selected[count++] = mRows[i];
+			}
+		}
+		return new FriendTable(mColumns, trim(selected, count));
+	}
+
+	/**
+	 * Sort the rows by the column. Rows with no value are placed last.
+	 *
+	 * @param column
+	 *            The column name
+	 * @param ascending
+	 *            <code>True</code> for ascending order
+	 * @return New sorted table
+	 */
+	public FriendTable sortBy(String column, boolean ascending) {
+		Column col = getColumn(column);
+		int[] rows = mRows.clone();
+		mergeSort(rows, new int[rows.length], 0, rows.length, col, ascending);
+		return new FriendTable(mColumns, rows);
+	}
+
+	/**
+	 * Keep only the given columns
+	 *
+	 * @param columns
+	 *            The column names
+	 * @return New table with the same rows and only these columns
+	 */
+	public FriendTable select(String... columns) {
+		Map<String, Column> selected = new LinkedHashMap<String, Column>();
+		for (String column : columns) {
+			selected.put(column, getColumn(column));
+		}
+		return new FriendTable(selected, mRows);
+	}
+
+	/**
+	 * Group the rows by the values of the column. For example, group friends
+	 * by {@link Properties#LOCALE}.
+	 *
+	 * @param column
+	 *            The column name
+	 * @return Map of the value to the table of rows with this value. Rows with
+	 *         no value are grouped under <code>null</code> key.
+	 */
+	public Map<String, FriendTable> groupBy(String column) {
+		Column col = getColumn(column);
+		Map<String, RowList> groups = new LinkedHashMap<String, RowList>();
+		for (int row : mRows) {
+			Object value = col.get(row);
+			String key = value != null ? String.valueOf(value) : null;
+			RowList group = groups.get(key);
+			if (group == null) {
+				group = new RowList();
+				groups.put(key, group);
+			}
+			group.add(row);
+		}
+
+		Map<String, FriendTable> result = new LinkedHashMap<String, FriendTable>();
+		for (Map.Entry<String, RowList> entry : groups.entrySet()) {
+			RowList group = entry.getValue();
+			result.put(entry.getKey(), new FriendTable(mColumns, trim(group.mRows, group.mCount)));
+		}
+		return result;
+	}
+
+	/**
+	 * Filter of table rows
+	 */
+	public interface Filter {
+		/**
+		 * @param table
+		 *            The table
+		 * @param row
+		 *            The row index in this table
+		 * @return <code>True</code> to keep the row
+		 */
+		boolean accept(FriendTable table, int row);
+	}
+
+	private Column getColumn(String column) {
+		Column col = mColumns.get(column);
+		if (col == null) {
+			throw new IllegalArgumentException("The column '" + column + "' doesn't exist in this table");
+		}
+		return col;
+	}
+
+	private static int[] trim(int[] rows, int count) {
+		if (count == rows.length) {
+			return rows;
+		}
+		int[] trimmed = new int[count];
+		System.arraycopy(rows, 0, trimmed, 0, count);
+		return trimmed;
+	}
+
+	private static void mergeSort(int[] rows, int[] buffer, int from, int to, Column column, boolean ascending) {
+		if (to - from < 2) {
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		mergeSort(rows, buffer, from, middle, column, ascending);
+		mergeSort(rows, buffer, middle, to, column, ascending);
+		int left = from;
+		int right = middle;
+		int index = from;
+		while (left < middle && right < to) {
+			if (compare(column, rows[left], rows[right], ascending) <= 0) {
+				buffer[index++] = rows[left++];
+			}
+			else {
+				buffer[index++] = rows[right++];
+			}
+		}
+		while (left < middle) {
+			buffer[index++] = rows[left++];
+		}
+		while (right < to) {
+			buffer[index++] = rows[right++];
+		}
+		System.arraycopy(buffer, from, rows, from, to - from);
+	}
+
+	private static int compare(Column column, int row1, int row2, boolean ascending) {
+		boolean null1 = column.isNull(row1);
+		boolean null2 = column.isNull(row2);
+		if (null1 || null2) {
+			return null1 == null2 ? 0 : (null1 ? 1 : -1);
+		}
+		int result = column.compare(row1, row2);
+		return ascending ? result : -result;
+	}
+
+	private static Column createColumn(int type, String name, List<? extends GraphObject> graphObjects) {
+		int size = graphObjects.size();
+		switch (type) {
+		case TYPE_DICTIONARY:
+			DictionaryColumn dictionaryColumn = new DictionaryColumn(size);
+			for (int i = 0; i < size; i++) {
+				dictionaryColumn.set(i, readString(graphObjects.get(i), name));
+			}
+			dictionaryColumn.rank();
+			return dictionaryColumn;
+		case TYPE_INTEGER:
+			IntegerColumn integerColumn = new IntegerColumn(size);
+			for (int i = 0; i < size; i++) {
+				integerColumn.set(i, Utils.getPropertyInteger(graphObjects.get(i), name));
+			}
+			return integerColumn;
+		case TYPE_BOOLEAN:
+			BooleanColumn booleanColumn = new BooleanColumn(size);
+			for (int i = 0; i < size; i++) {
+				booleanColumn.set(i, Utils.getPropertyBoolean(graphObjects.get(i), name));
+			}
+			return booleanColumn;
+		default:
+			StringColumn stringColumn = new StringColumn(size);
+			for (int i = 0; i < size; i++) {
+				stringColumn.mValues[i] = readString(graphObjects.get(i), name);
+			}
+			return stringColumn;
+		}
+	}
+
+	private static String readString(GraphObject graphObject, String name) {
+		if (graphObject == null) {
+			return null;
+		}
+		if (Properties.PICTURE.equals(name)) {
+			GraphObject picture = Utils.getPropertyGraphObject(graphObject, Properties.PICTURE);
+			GraphObject data = Utils.getPropertyGraphObject(picture, "data");
+			return readString(data, "url");
+		}
+		if (Properties.LOCATION.equals(name) || Properties.HOMETOWN.equals(name)) {
+			// nested objects are returned as raw json by getProperty
+			Object value = graphObject.getProperty(name);
+			if (value instanceof JSONObject) {
+				return readString(Utils.getPropertyGraphObject(graphObject, name), "name");
+			}
+			return value != null ? String.valueOf(value) : null;
+		}
+		Object value = graphObject.getProperty(name);
+		return value != null ? String.valueOf(value) : null;
+	}
+
+	private static class RowList {
+		int[] mRows = new int[8];
+		int mCount = 0;
+
+		void add(int row) {
+			if (mCount == mRows.length) {
+				int[] larger = new int[mCount * 2];
+				System.arraycopy(mRows, 0, larger, 0, mCount);
+				mRows = larger;
+			}
+			mRows[mCount++] = row;
+		}
+	}
+
+	private static abstract class Column {
+		abstract Object get(int row);
+
+		abstract boolean isNull(int row);
+
+		/**
+		 * Compare two not null rows
+		 */
+		abstract int compare(int row1, int row2);
+	}
+
+	private static class StringColumn extends Column {
+		final String[] mValues;
+
+		StringColumn(int size) {
+			mValues = new String[size];
+		}
+
+		@Override
+		Object get(int row) {
+			return mValues[row];
+		}
+
+		@Override
+		boolean isNull(int row) {
+			return mValues[row] == null;
+		}
+
+		@Override
+		int compare(int row1, int row2) {
+			return mValues[row1].compareToIgnoreCase(mValues[row2]);
+		}
+	}
+
+	private static class DictionaryColumn extends Column {
+		static final int NULL_CODE = -1;
+
+		final List<String> mDictionary = new ArrayList<String>();
+		final Map<String, Integer> mIndex = new HashMap<String, Integer>();
+		final int[] mCodes;
+		int[] mRanks;
+
+		DictionaryColumn(int size) {
+			mCodes = new int[size];
+		}
+
+		void set(int row, String value) {
+			if (value == null) {
+				mCodes[row] = NULL_CODE;
+				return;
+			}
+			Integer code = mIndex.get(value);
+			if (code == null) {
+				code = mDictionary.size();
+				mDictionary.add(value);
+				mIndex.put(value, code);
+			}
+			mCodes[row] = code;
+		}
+
+		int codeOf(String value) {
+			Integer code = mIndex.get(value);
+			return code != null ? code : NULL_CODE;
+		}
+
+		/**
+		 * Pre-compute the sort order of the dictionary values, so rows can be
+		 * compared by their codes
+		 */
+		void rank() {
+			List<String> sorted = new ArrayList<String>(mDictionary);
+			Collections.sort(sorted, String.CASE_INSENSITIVE_ORDER);
+			mRanks = new int[mDictionary.size()];
+			for (int i = 0; i < sorted.size(); i++) {
+				mRanks[mIndex.get(sorted.get(i))] = i;
+			}
+		}
+
+		@Override
+		Object get(int row) {
+			int code = mCodes[row];
+			return code == NULL_CODE ? null : mDictionary.get(code);
+		}
+
+		@Override
+		boolean isNull(int row) {
+			return mCodes[row] == NULL_CODE;
+		}
+
+		@Override
+		int compare(int row1, int row2) {
+			return mRanks[mCodes[row1]] - mRanks[mCodes[row2]];
+		}
+	}
+
+	private static class IntegerColumn extends Column {
+		final int[] mValues;
+		final boolean[] mNulls;
+
+		IntegerColumn(int size) {
+			mValues = new int[size];
+			mNulls = new boolean[size];
+		}
+
+		void set(int row, Integer value) {
+			if (value == null) {
+				mNulls[row] = true;
+			}
+			else {
+				mValues[row] = value;
+			}
+		}
+
+		@Override
+		Object get(int row) {
+			return mNulls[row] ? null : Integer.valueOf(mValues[row]);
+		}
+
+		@Override
+		boolean isNull(int row) {
+			return mNulls[row];
+		}
+
+		@Override
+		int compare(int row1, int row2) {
+			int value1 = mValues[row1];
+			int value2 = mValues[row2];
+			return value1 < value2 ? -1 : (value1 == value2 ? 0 : 1);
+		}
+	}
+
+	private static class BooleanColumn extends Column {
+		private static final byte NULL = 0;
+		private static final byte FALSE = 1;
+		private static final byte TRUE = 2;
+
+		final byte[] mValues;
+
+		BooleanColumn(int size) {
+			mValues = new byte[size];
+		}
+
+		void set(int row, Boolean value) {
+			mValues[row] = value == null ? NULL : (value ? TRUE : FALSE);
+		}
+
+		@Override
+		Object get(int row) {
+			byte value = mValues[row];
+			return value == NULL ? null : Boolean.valueOf(value == TRUE);
+		}
+
+		@Override
+		boolean isNull(int row) {
+			return mValues[row] == NULL;
+		}
+
+		@Override
+		int compare(int row1, int row2) {
+			return mValues[row1] - mValues[row2];
+		}
+	}
+}
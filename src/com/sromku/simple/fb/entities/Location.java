@@ -1,6 +1,7 @@
 package com.sromku.simple.fb.entities;
 
 import com.facebook.model.GraphObject;
+import com.sromku.simple.fb.utils.Utils;
 
 public class Location {
 	private String mId;
@@ -26,8 +27,8 @@ public class Location {
 			return location;
 		}
 
-		location.mId = String.valueOf(graphObject.getProperty("id"));
-		location.mName = String.valueOf(graphObject.getProperty("name"));
+		location.mId = Utils.getPooledPropertyString(graphObject, "id");
+		location.mName = Utils.getPooledPropertyString(graphObject, "name");
 		return location;
 	}
 }
@@ -2,6 +2,10 @@ package com.sromku.simple.fb.entities;
 
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.List;
 
 import android.graphics.Bitmap;
@@ -12,6 +16,7 @@ import android.os.Parcelable;
 import com.facebook.model.GraphObject;
 import com.sromku.simple.fb.Permission;
 import com.sromku.simple.fb.utils.GraphPath;
+import com.sromku.simple.fb.utils.ImageSpooler;
 import com.sromku.simple.fb.utils.Logger;
 import com.sromku.simple.fb.utils.Utils;
 import com.sromku.simple.fb.utils.Utils.Converter;
@@ -63,6 +68,10 @@ public class Photo implements Publishable {
 	private String mPlaceId = null;
 	private Parcelable mParcelable = null;
 	private byte[] mBytes = null;
+	private ImageSpooler.Source mImageSource = null;
+	private int mMaxWidth = 0;
+	private int mMaxHeight = 0;
+	private int mQuality = 0;
 	private Privacy mPrivacy = null;
 
 	private Photo(GraphObject graphObject) {
@@ -93,7 +102,7 @@ public class Photo implements Publishable {
 		mHeight = Utils.getPropertyInteger(graphObject, HEIGHT);
 
 		// icon
-		mIcon = Utils.getPropertyString(graphObject, ICON);
+		mIcon = Utils.getPooledPropertyString(graphObject, ICON);
 
 		// image sources
 		mImageSources = Utils.createList(graphObject, IMAGES, new Converter<ImageSource>() {
@@ -138,6 +147,10 @@ public class Photo implements Publishable {
 		mPlaceId = builder.mPlaceId;
 		mParcelable = builder.mParcelable;
 		mBytes = builder.mBytes;
+		mImageSource = builder.mImageSource;
+		mMaxWidth = builder.mMaxWidth;
+		mMaxHeight = builder.mMaxHeight;
+		mQuality = builder.mQuality;
 		mPrivacy = builder.mPrivacy;
 	}
 
@@ -196,6 +209,38 @@ public class Photo implements Publishable {
 		return mImageSources;
 	}
 
+	/**
+	 * Get the smallest image source that is at least as large as the target
+	 * size. If all sources are smaller, then the largest one is returned.
+	 * 
+	 * @param width
+	 *            The target width in pixels. Use <code>0</code> for any width
+	 * @param height
+	 *            The target height in pixels. Use <code>0</code> for any
+	 *            height
+	 * @return The image source or <code>null</code> if the photo has no image
+	 *         sources
+	 */
+	public ImageSource getImageSource(int width, int height) {
+		if (mImageSources == null) {
+			return null;
+		}
+		ImageSource best = null;
+		ImageSource largest = null;
+		for (ImageSource imageSource : mImageSources) {
+			int sourceWidth = imageSource.mWidth != null ? imageSource.mWidth : 0;
+			int sourceHeight = imageSource.mHeight != null ? imageSource.mHeight : 0;
+			long area = imageSource.getArea();
+			if (largest == null || area > largest.getArea()) {
+				largest = imageSource;
+			}
+			if (sourceWidth >= width && sourceHeight >= height && (best == null || area < best.getArea())) {
+				best = imageSource;
+			}
+		}
+		return best != null ? best : largest;
+	}
+
 	public String getLink() {
 		return mLink;
 	}
@@ -257,6 +302,50 @@ public class Photo implements Publishable {
 		return bundle;
 	}
 
+	/**
+	 * Return <code>True</code> if the image was set from a stream, buffer or
+	 * channel and must be written to a file by {@link #spool(File)} before
+	 * publishing. In this case {@link #getBundle()} has no image.
+	 */
+	public boolean isSpoolRequired() {
+		return mImageSource != null && mParcelable == null;
+	}
+
+	/**
+	 * Write the image source to a temporary file in the directory, and
+	 * downscale it if the max size was set. The file is opened for upload and
+	 * deleted right away, so it is removed once the upload is done.<br>
+	 * <br>
+	 * The photo itself isn't changed, so each publish spools its own file.
+	 * Buffers and channels can be spooled many times, while a stream can be
+	 * read only once. <br>
+	 * <br>
+	 * Don't call this method from the main thread.
+	 * 
+	 * @param directory
+	 *            The directory for temporary files, like cache dir
+	 * @return The bundle of the photo with the spooled image, for one request
+	 * @throws IOException
+	 */
+	public Bundle spool(File directory) throws IOException {
+		File file = ImageSpooler.spool(mImageSource, directory);
+		try {
+			if (mMaxWidth > 0 && mMaxHeight > 0) {
+				File scaledFile = ImageSpooler.downscale(file, mMaxWidth, mMaxHeight, mQuality);
+				if (scaledFile != file) {
+					file.delete();
+					file = scaledFile;
+				}
+			}
+			Bundle bundle = getBundle();
+			bundle.putParcelable(PICTURE, ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY));
+			return bundle;
+		}
+		finally {
+			file.delete();
+		}
+	}
+
 	public enum BackDatetimeGranularity {
 		YEAR("year"),
 		MONTH("month"),
@@ -302,6 +391,13 @@ public class Photo implements Publishable {
 		public String getSource() {
 			return mSource;
 		}
+
+		private long getArea() {
+			if (mWidth == null || mHeight == null) {
+				return 0;
+			}
+			return (long) mWidth * mHeight;
+		}
 	}
 
 	/**
@@ -313,6 +409,10 @@ public class Photo implements Publishable {
 
 		private Parcelable mParcelable = null;
 		private byte[] mBytes = null;
+		private ImageSpooler.Source mImageSource = null;
+		private int mMaxWidth = 0;
+		private int mMaxHeight = 0;
+		private int mQuality = 85;
 		private Privacy mPrivacy = null;
 
 		public Builder() {
@@ -353,6 +453,65 @@ public class Photo implements Publishable {
 			return this;
 		}
 
+		/**
+		 * Set photo to be published. The stream is copied to a temporary
+		 * file before publishing and then closed, so the image is never held
+		 * in the memory as a whole.
+		 * 
+		 * @param inputStream
+		 */
+		public Builder setImage(InputStream inputStream) {
+			mImageSource = ImageSpooler.Source.from(inputStream);
+			return this;
+		}
+
+		/**
+		 * Set photo to be published. The remaining bytes of the buffer are
+		 * copied to a temporary file before publishing.
+		 * 
+		 * @param byteBuffer
+		 */
+		public Builder setImage(ByteBuffer byteBuffer) {
+			mImageSource = ImageSpooler.Source.from(byteBuffer);
+			return this;
+		}
+
+		/**
+		 * Set photo to be published. The channel is transferred to a
+		 * temporary file before publishing.
+		 * 
+		 * @param fileChannel
+		 */
+		public Builder setImage(FileChannel fileChannel) {
+			mImageSource = ImageSpooler.Source.from(fileChannel);
+			return this;
+		}
+
+		/**
+		 * Downscale the photo that was set by stream, buffer or channel to fit
+		 * the max size, and recompress it as JPEG. The photo is decoded with
+		 * sample size, so the full resolution image is never loaded.
+		 * 
+		 * @param maxWidth
+		 * @param maxHeight
+		 */
+		public Builder setMaxSize(int maxWidth, int maxHeight) {
+			mMaxWidth = maxWidth;
+			mMaxHeight = maxHeight;
+			return this;
+		}
+
+		/**
+		 * Set the JPEG quality of the downscaled photo. Default is 85.
+		 * 
+		 * @param quality
+		 *            0-100
+		 */
+		public Builder setQuality(int quality) {
+			mQuality = quality;
+			return this;
+		}
+
 		/**
 		 * Add name/description to the photo
 		 * 
@@ -2,6 +2,8 @@ package com.sromku.simple.fb.entities;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 
 import org.json.JSONException;
 import org.json.JSONObject;
@@ -12,7 +14,10 @@ import com.sromku.simple.fb.utils.Utils;
 
 /**
  * A class that helps control the audience on Facebook that can see a post made
- * by an app on behalf of a user.
+ * by an app on behalf of a user.<br>
+ * <br>
+ * The privacy is immutable and its JSON value is built once, so the same
+ * instance can be shared between many posts and threads.
  * 
  * @author ronlut
  * @see https://developers.facebook.com/docs/reference/api/privacy-parameter/
@@ -24,9 +29,10 @@ public class Privacy {
 	private static final String DENY = "deny";
 
 	// private String mDescription;
-	private PrivacySettings mPrivacySetting = null;
-	private ArrayList<String> mAllowedUsers = new ArrayList<String>();
-	private ArrayList<String> mDeniedUsers = new ArrayList<String>();
+	private final PrivacySettings mPrivacySetting;
+	private final List<String> mAllowedUsers;
+	private final List<String> mDeniedUsers;
+	private final String mJSONString;
 
 	public static enum PrivacySettings {
 		EVERYONE,
@@ -38,12 +44,17 @@ public class Privacy {
 
 	private Privacy(Builder builder) {
 		mPrivacySetting = builder.mPrivacySetting;
-		mAllowedUsers = builder.mAllowedUsers;
-		mDeniedUsers = builder.mDeniedUsers;
+		mAllowedUsers = Collections.unmodifiableList(new ArrayList<String>(builder.mAllowedUsers));
+		mDeniedUsers = Collections.unmodifiableList(new ArrayList<String>(builder.mDeniedUsers));
+		mJSONString = buildJSONString();
 	}
 
 	private Privacy(GraphObject graphObject) {
 		// not supported currently. It is used as output in 'Post' entity
+		mPrivacySetting = null;
+		mAllowedUsers = Collections.emptyList();
+		mDeniedUsers = Collections.emptyList();
+		mJSONString = null;
 	}
 
 	public static Privacy create(GraphObject graphObject) {
@@ -225,6 +236,25 @@ public class Privacy {
 	 * @return A {@code String} representing the value of the privacy parameter
 	 */
 	public String getJSONString() {
+		return mJSONString;
+	}
+
+	public PrivacySettings getPrivacySettings() {
+		return mPrivacySetting;
+	}
+
+	public List<String> getAllowed() {
+		return mAllowedUsers;
+	}
+
+	public List<String> getDenied() {
+		return mDeniedUsers;
+	}
+
+	private String buildJSONString() {
+		if (mPrivacySetting == null) {
+			return null;
+		}
 		JSONObject jsonRepresentation = new JSONObject();
 		try {
 			jsonRepresentation.put(PRIVACY, mPrivacySetting.name());
@@ -1,5 +1,6 @@
 package com.sromku.simple.fb.entities;
 
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
@@ -78,18 +79,18 @@ public class Profile implements User {
 		mLastName = Utils.getPropertyString(mGraphObject, Properties.LAST_NAME);
 
 		// gender
-		mGender = Utils.getPropertyString(mGraphObject, Properties.GENDER);
+		mGender = Utils.getPooledPropertyString(mGraphObject, Properties.GENDER);
 
 		// locale
-		mLocale = Utils.getPropertyString(mGraphObject, Properties.LOCALE);
+		mLocale = Utils.getPooledPropertyString(mGraphObject, Properties.LOCALE);
 
 		// languages
 		mLanguages = Utils.createList(mGraphObject, Properties.LANGUAGE, new Converter<Language>() {
 			@Override
 			public Language convert(GraphObject graphObject) {
 				Language language = new Language();
-				language.setId(Utils.getPropertyString(graphObject, "id"));
-				language.setName(Utils.getPropertyString(graphObject, "name"));
+				language.setId(Utils.getPooledPropertyString(graphObject, "id"));
+				language.setName(Utils.getPooledPropertyString(graphObject, "name"));
 				return language;
 			}
 		});
@@ -177,7 +178,7 @@ public class Profile implements User {
 		mQuotes = Utils.getPropertyString(mGraphObject, Properties.QUOTES);
 
 		// relationship status
-		mRelationshipStatus = Utils.getPropertyString(mGraphObject, Properties.RELATIONSHIP_STATUS);
+		mRelationshipStatus = Utils.getPooledPropertyString(mGraphObject, Properties.RELATIONSHIP_STATUS);
 
 		// religion
 		mReligion = Utils.getPropertyString(mGraphObject, Properties.RELIGION);
@@ -649,18 +650,30 @@ public class Profile implements User {
 
 	public static class Properties {
 		private final Bundle mBundle;
+		private final Set<String> mNames;
 
 		private Properties(Builder builder) {
 			mBundle = new Bundle();
 			Iterator<String> iterator = builder.properties.iterator();
 			String fields = Utils.join(iterator, ',');
 			mBundle.putString("fields", fields);
+			mNames = Collections.unmodifiableSet(new HashSet<String>(builder.names));
 		}
 
 		public Bundle getBundle() {
 			return mBundle;
 		}
 
+		/**
+		 * Get the names of requested properties without attributes. For
+		 * example {@link #PICTURE} and not <code>picture.width(100)</code>.
+		 * 
+		 * @return The set of property names
+		 */
+		public Set<String> getNames() {
+			return mNames;
+		}
+
 		/**
 		 * <b>Description:</b><br>
 		 * The user's Facebook ID<br>
@@ -1130,9 +1143,11 @@ public class Profile implements User {
 
 		public static class Builder {
 			Set<String> properties;
+			Set<String> names;
 
 			public Builder() {
 				properties = new HashSet<String>();
+				names = new HashSet<String>();
 			}
 
 			/**
@@ -1145,6 +1160,7 @@ public class Profile implements User {
 			 */
 			public Builder add(String property) {
 				properties.add(property);
+				names.add(property);
 				return this;
 			}
 
@@ -1178,6 +1194,7 @@ public class Profile implements User {
 				stringBuilder.append(Utils.join(map, '.', '(', ')'));
 
 				properties.add(stringBuilder.toString());
+				names.add(property);
 				return this;
 			}
 
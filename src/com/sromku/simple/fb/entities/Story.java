@@ -1,16 +1,21 @@
 package com.sromku.simple.fb.entities;
 
-import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import android.os.Bundle;
 
 import com.sromku.simple.fb.Permission;
 import com.sromku.simple.fb.SimpleFacebook;
-import com.sromku.simple.fb.utils.Logger;
+import com.sromku.simple.fb.SimpleFacebookConfiguration;
+import com.sromku.simple.fb.utils.Utils;
 
 /**
- * Open graph story
+ * Open graph story.<br>
+ * <br>
+ * The story is immutable. The object url and the action parameters are built
+ * once by {@link Builder}, so the same story can be published many times and
+ * from many threads.
  * 
  * @author sromku
  * @see http://ogp.me/
@@ -23,11 +28,12 @@ public class Story implements Publishable {
 	private Story(ActionOpenGraph action, ObjectOpenGraph object) {
 		mAction = action;
 		mObject = object;
-
-		// Connect between object and action
-		mAction.putProperty(mObject.getObjectName(), mObject.getObjectUrl());
 	}
 
+	/**
+	 * Get a copy of the action parameters. A copy is returned since the
+	 * request adds its own parameters to the bundle.
+	 */
 	@Override
 	public Bundle getBundle() {
 		return mAction.getProperties();
@@ -35,7 +41,17 @@ public class Story implements Publishable {
 
 	@Override
 	public String getPath() {
-		return SimpleFacebook.getConfiguration().getNamespace() + ":" + mAction.getActionName();
+		return getPath(SimpleFacebook.getConfiguration());
+	}
+
+	/**
+	 * The path of the action in the namespace of the given configuration
+	 * 
+	 * @param configuration
+	 *            The configuration of the client that publishes the story
+	 */
+	public String getPath(SimpleFacebookConfiguration configuration) {
+		return configuration.getNamespace() + ":" + mAction.getActionName();
 	}
 
 	@Override
@@ -54,23 +70,59 @@ public class Story implements Publishable {
 	public static class Builder {
 		private String mObjectName = null;
 		private String mObjectUrl = null;
+		private ObjectTemplate mObjectTemplate = null;
 		private String mActionName = null;
-		private final Bundle mObjectBundle;
+		private final Map<String, Object> mObjectProperties;
 		private final Bundle mActionBundle;
 
 		public Builder() {
-			mObjectBundle = new Bundle();
+			mObjectProperties = new LinkedHashMap<String, Object>();
 			mActionBundle = new Bundle();
 		}
 
 		public Builder setObject(String objectName, String objectUrl) {
 			mObjectName = objectName;
 			mObjectUrl = objectUrl;
+			mObjectTemplate = null;
+			return this;
+		}
+
+		/**
+		 * Set the object by template. The properties of the template are
+		 * already encoded, and only the properties added by
+		 * <code>addObjectProperty</code> are encoded for this story.
+		 * 
+		 * @param objectTemplate
+		 */
+		public Builder setObject(ObjectTemplate objectTemplate) {
+			mObjectTemplate = objectTemplate;
+			mObjectName = null;
+			mObjectUrl = null;
 			return this;
 		}
 
 		public Builder addObjectProperty(String property, String value) {
-			mObjectBundle.putString(property, value);
+			mObjectProperties.put(property, value);
+			return this;
+		}
+
+		public Builder addObjectProperty(String property, int value) {
+			mObjectProperties.put(property, value);
+			return this;
+		}
+
+		public Builder addObjectProperty(String property, long value) {
+			mObjectProperties.put(property, value);
+			return this;
+		}
+
+		public Builder addObjectProperty(String property, double value) {
+			mObjectProperties.put(property, value);
+			return this;
+		}
+
+		public Builder addObjectProperty(String property, boolean value) {
+			mObjectProperties.put(property, value);
 			return this;
 		}
 
@@ -91,11 +143,16 @@ public class Story implements Publishable {
 
 		public Story build() {
 			// create story
-			ObjectOpenGraph object = new ObjectOpenGraph(mObjectName, mObjectUrl);
-			object.setProperties(mObjectBundle);
+			ObjectTemplate template = mObjectTemplate;
+			if (template == null) {
+				template = new ObjectTemplate.Builder(mObjectName, mObjectUrl).build();
+			}
+			ObjectOpenGraph object = new ObjectOpenGraph(template.getObjectName(), template.getObjectUrl(mObjectProperties));
 
-			ActionOpenGraph action = new ActionOpenGraph(mActionName);
-			action.setProperties(mActionBundle);
+			// connect between object and action
+			Bundle actionBundle = new Bundle(mActionBundle);
+			actionBundle.putString(object.getObjectName(), object.getObjectUrl());
+			ActionOpenGraph action = new ActionOpenGraph(mActionName, actionBundle);
 
 			return new Story(action, object);
 		}
@@ -105,30 +162,123 @@ public class Story implements Publishable {
 		}
 	}
 
+	/**
+	 * Precompiled open graph object. Create the template once for each object
+	 * type with its constant properties, and then use it for many stories by
+	 * {@link Story.Builder#setObject(ObjectTemplate)}. The url of the object
+	 * host file and the constant properties are encoded only once.
+	 * 
+	 * <pre>
+	 * ObjectTemplate levelTemplate = new ObjectTemplate.Builder(&quot;level&quot;, &quot;http://example.com/level.php&quot;)
+	 * 	.addProperty(&quot;game&quot;, &quot;puzzle&quot;)
+	 * 	.build();
+	 * 
+	 * Story story = new Story.Builder()
+	 * 	.setObject(levelTemplate)
+	 * 	.addObjectProperty(&quot;level&quot;, 12)
+	 * 	.setAction(&quot;complete&quot;)
+	 * 	.build();
+	 * </pre>
+	 */
+	public static class ObjectTemplate {
+		private final String mObjectName;
+		private final String mPrefix;
+		private final boolean mHasProperties;
+
+		private ObjectTemplate(Builder builder) {
+			mObjectName = builder.mObjectName;
+			// missing url is appended as "null", like the concatenation did
+			StringBuilder prefix = new StringBuilder().append(builder.mHostFileUrl).append('?');
+			mHasProperties = appendProperties(prefix, builder.mProperties, true);
+			mPrefix = prefix.toString();
+		}
+
+		public String getObjectName() {
+			return mObjectName;
+		}
+
+		/**
+		 * Get the url of the object with the constant properties of the
+		 * template and the given properties
+		 * 
+		 * @param properties
+		 *            Properties of one story. Values are converted by
+		 *            {@link String#valueOf(Object)}
+		 */
+		public String getObjectUrl(Map<String, ?> properties) {
+			if (properties == null || properties.size() == 0) {
+				return mPrefix;
+			}
+			StringBuilder url = new StringBuilder(mPrefix.length() + properties.size() * 32).append(mPrefix);
+			appendProperties(url, properties, !mHasProperties);
+			return url.toString();
+		}
+
+		private static boolean appendProperties(StringBuilder builder, Map<String, ?> properties, boolean first) {
+			for (Map.Entry<String, ?> entry : properties.entrySet()) {
+				if (entry.getValue() == null) {
+					continue;
+				}
+				if (!first) {
+					builder.append('&');
+				}
+				first = false;
+				Utils.appendUrlEncoded(builder, entry.getKey()).append('=');
+				Utils.appendUrlEncoded(builder, String.valueOf(entry.getValue()));
+			}
+			return !first;
+		}
+
+		public static class Builder {
+			private final String mObjectName;
+			private final String mHostFileUrl;
+			private final Map<String, Object> mProperties = new LinkedHashMap<String, Object>();
+
+			/**
+			 * @param objectName
+			 *            The object name, like <code>"level"</code>
+			 * @param hostFileUrl
+			 *            The url of the file that hosts the object
+			 */
+			public Builder(String objectName, String hostFileUrl) {
+				mObjectName = objectName;
+				mHostFileUrl = hostFileUrl;
+			}
+
+			/**
+			 * Add property that is the same for all stories of the template
+			 * 
+			 * @param property
+			 * @param value
+			 *            The value, like {@link String}, number or boolean
+			 */
+			public Builder addProperty(String property, Object value) {
+				mProperties.put(property, value);
+				return this;
+			}
+
+			public ObjectTemplate build() {
+				return new ObjectTemplate(this);
+			}
+		}
+	}
+
 	/**
 	 * Action of the open graph
 	 * 
 	 * @author sromku
 	 */
 	static class ActionOpenGraph {
-		private Bundle mBundle;
+		private final Bundle mBundle;
 		private final String mActionName;
 
-		ActionOpenGraph(String actionName) {
-			mBundle = new Bundle();
+		ActionOpenGraph(String actionName, Bundle bundle) {
+			mBundle = bundle;
 			mActionName = actionName;
 		}
 
-		void putProperty(String property, String value) {
-			mBundle.putString(property, value);
-		}
-
-		void setProperties(Bundle bundle) {
-			this.mBundle = bundle;
-		}
-
 		Bundle getProperties() {
-			return mBundle;
+			return new Bundle(mBundle);
 		}
 
 		String getActionName() {
@@ -143,26 +293,12 @@ public class Story implements Publishable {
 	 * 
 	 */
 	static class ObjectOpenGraph {
-		private Bundle mBundle;
-		private final String mHostFileUrl;
 		private final String mObjectName;
+		private final String mObjectUrl;
 
-		ObjectOpenGraph(String objectName, String hostFileUrl) {
-			mBundle = new Bundle();
-			mHostFileUrl = hostFileUrl;
+		ObjectOpenGraph(String objectName, String objectUrl) {
 			mObjectName = objectName;
-		}
-
-		void putProperty(String property, String value) {
-			mBundle.putString(property, value);
-		}
-
-		void setProperties(Bundle bundle) {
-			this.mBundle = bundle;
-		}
-
-		Bundle getProperties() {
-			return mBundle;
+			mObjectUrl = objectUrl;
 		}
 
 		String getObjectName() {
@@ -170,38 +306,8 @@ public class Story implements Publishable {
 		}
 
 		String getObjectUrl() {
-			return mHostFileUrl + "?" + encodeUrl(mBundle);
+			return mObjectUrl;
 		}
-
-		private static String encodeUrl(Bundle parameters) {
-			if (parameters == null) {
-				return "";
-			}
-
-			StringBuilder sb = new StringBuilder();
-			boolean first = true;
-			for (String key : parameters.keySet()) {
-				Object parameter = parameters.get(key);
-				if (!(parameter instanceof String)) {
-					continue;
-				}
-
-				if (first) {
-					first = false;
-				}
-				else {
-					sb.append("&");
-				}
-				try {
-					sb.append(URLEncoder.encode(key, CHARSET_NAME)).append("=").append(URLEncoder.encode(parameters.getString(key), CHARSET_NAME));
-				}
-				catch (UnsupportedEncodingException e) {
-					Logger.logError(Story.class, "Error enconding URL", e);
-				}
-			}
-			return sb.toString();
-		}
-
 	}
 
 }
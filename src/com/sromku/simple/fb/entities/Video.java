@@ -0,0 +1,161 @@
+package com.sromku.simple.fb.entities;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+
+import android.os.Bundle;
+import android.os.ParcelFileDescriptor;
+
+import com.sromku.simple.fb.Permission;
+import com.sromku.simple.fb.utils.GraphPath;
+import com.sromku.simple.fb.utils.Logger;
+
+/**
+ * Video to be published. <br>
+ * <br>
+ * Publishing by
+ * {@link com.sromku.simple.fb.SimpleFacebook#publish(Video, com.sromku.simple.fb.listeners.OnUploadListener)
+ * publish(Video, OnUploadListener)} uploads the file in chunks and can be
+ * resumed after network failure.
+ * 
+ * @see https://developers.facebook.com/docs/graph-api/reference/video
+ */
+public class Video implements Publishable {
+
+	private static final String TITLE = "title";
+	private static final String DESCRIPTION = "description";
+	private static final String PRIVACY = "privacy";
+
+	private final File mFile;
+	private final String mTitle;
+	private final String mDescription;
+	private final Privacy mPrivacy;
+
+	private Video(Builder builder) {
+		mFile = builder.mFile;
+		mTitle = builder.mTitle;
+		mDescription = builder.mDescription;
+		mPrivacy = builder.mPrivacy;
+	}
+
+	/**
+	 * The bundle with the whole file, for publishing in one request. The file
+	 * is streamed from the disk.
+	 */
+	@Override
+	public Bundle getBundle() {
+		Bundle bundle = getMetadataBundle();
+		if (mFile != null) {
+			try {
+				// the name of the file part must have the video extension
+				bundle.putParcelable(mFile.getName(), ParcelFileDescriptor.open(mFile, ParcelFileDescriptor.MODE_READ_ONLY));
+			}
+			catch (FileNotFoundException e) {
+				Logger.logError(Video.class, "Failed to open video file", e);
+			}
+		}
+		return bundle;
+	}
+
+	/**
+	 * The bundle with title, description and privacy, without the file
+	 */
+	public Bundle getMetadataBundle() {
+		Bundle bundle = new Bundle();
+		if (mTitle != null) {
+			bundle.putString(TITLE, mTitle);
+		}
+		if (mDescription != null) {
+			bundle.putString(DESCRIPTION, mDescription);
+		}
+		if (mPrivacy != null) {
+			bundle.putString(PRIVACY, mPrivacy.getJSONString());
+		}
+		return bundle;
+	}
+
+	@Override
+	public String getPath() {
+		return GraphPath.VIDEOS;
+	}
+
+	@Override
+	public Permission getPermission() {
+		return Permission.PUBLISH_ACTION;
+	}
+
+	public File getFile() {
+		return mFile;
+	}
+
+	public String getTitle() {
+		return mTitle;
+	}
+
+	public String getDescription() {
+		return mDescription;
+	}
+
+	public Privacy getPrivacy() {
+		return mPrivacy;
+	}
+
+	/**
+	 * Builder for preparing the Video object to be published.
+	 */
+	public static class Builder {
+		private File mFile = null;
+		private String mTitle = null;
+		private String mDescription = null;
+		private Privacy mPrivacy = null;
+
+		public Builder() {
+		}
+
+		/**
+		 * Set video file to be published
+		 * 
+		 * @param file
+		 */
+		public Builder setVideo(File file) {
+			mFile = file;
+			return this;
+		}
+
+		/**
+		 * Set the title of the video
+		 * 
+		 * @param title
+		 */
+		public Builder setTitle(String title) {
+			mTitle = title;
+			return this;
+		}
+
+		/**
+		 * Set the description of the video
+		 * 
+		 * @param description
+		 */
+		public Builder setDescription(String description) {
+			mDescription = description;
+			return this;
+		}
+
+		/**
+		 * Add privacy setting to the video
+		 * 
+		 * @param privacy
+		 *            The privacy setting of the video
+		 * @see com.sromku.simple.fb.entities.Privacy
+		 */
+		public Builder setPrivacy(Privacy privacy) {
+			mPrivacy = privacy;
+			return this;
+		}
+
+		public Video build() {
+			return new Video(this);
+		}
+	}
+}
@@ -0,0 +1,29 @@
+package com.sromku.simple.fb.listeners;
+
+import java.util.List;
+
+/**
+ * On delete many requests listener. Each request result is reported by
+ * {@link #onItemComplete(String)} or {@link #onItemException(String, Throwable)},
+ * and when all requests are done, {@link #onComplete(Object)} is called with
+ * the ids that were deleted.
+ */
+public abstract class OnDeleteAllListener extends OnActionListener<List<String>> {
+
+	/**
+	 * The request was deleted
+	 * 
+	 * @param requestId
+	 */
+	public void onItemComplete(String requestId) {
+	}
+
+	/**
+	 * The request failed to be deleted
+	 * 
+	 * @param requestId
+	 * @param throwable
+	 */
+	public void onItemException(String requestId, Throwable throwable) {
+	}
+}
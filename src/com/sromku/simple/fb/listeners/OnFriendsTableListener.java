@@ -0,0 +1,9 @@
+package com.sromku.simple.fb.listeners;
+
+import com.sromku.simple.fb.entities.FriendTable;
+
+/**
+ * On friends table request listener
+ */
+public abstract class OnFriendsTableListener extends OnActionListener<FriendTable> {
+}
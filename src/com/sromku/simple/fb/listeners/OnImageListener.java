@@ -0,0 +1,9 @@
+package com.sromku.simple.fb.listeners;
+
+import android.graphics.Bitmap;
+
+/**
+ * On image loaded listener. The methods are called on the main thread.
+ */
+public abstract class OnImageListener extends OnActionListener<Bitmap> {
+}
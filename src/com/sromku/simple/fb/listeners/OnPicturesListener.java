@@ -0,0 +1,27 @@
+package com.sromku.simple.fb.listeners;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * On pictures request listener. The result maps user id to the picture url.
+ * <br>
+ * <br>
+ * Ids whose request failed are reported by
+ * {@link #onIdsException(List, Throwable)}, and are missing in the result of
+ * {@link #onComplete(Object)}. If all requests failed, then
+ * {@link #onException(Throwable)} is called instead of
+ * {@link #onComplete(Object)}.
+ */
+public abstract class OnPicturesListener extends OnActionListener<Map<String, String>> {
+
+	/**
+	 * The request of these ids failed
+	 * 
+	 * @param ids
+	 *            The user ids that weren't resolved
+	 * @param throwable
+	 */
+	public void onIdsException(List<String> ids, Throwable throwable) {
+	}
+}
@@ -0,0 +1,47 @@
+package com.sromku.simple.fb.listeners;
+
+import java.util.List;
+
+/**
+ * On publishing many items listener. Each item result is reported by
+ * {@link #onItemComplete(int, String)} or
+ * {@link #onItemException(int, Throwable)}, and when all items are done,
+ * {@link #onComplete(Object)} is called with the list of post ids. Failed
+ * items have <code>null</code> id in this list.
+ */
+public abstract class OnPublishAllListener extends OnActionListener<List<String>> {
+
+	/**
+	 * The item was published
+	 * 
+	 * @param index
+	 *            The index of the item in the published list
+	 * @param postId
+	 *            The id of the published post
+	 */
+	public void onItemComplete(int index, String postId) {
+	}
+
+	/**
+	 * The item failed
+	 * 
+	 * @param index
+	 *            The index of the item in the published list
+	 * @param throwable
+	 */
+	public void onItemException(int index, Throwable throwable) {
+	}
+
+	/**
+	 * The progress of the whole set. Called after each uploaded item by
+	 * {@link com.sromku.simple.fb.SimpleFacebook#uploadPhotos(List, String, OnPublishAllListener)
+	 * uploadPhotos(...)}
+	 * 
+	 * @param uploadedBytes
+	 *            The bytes of the items that were uploaded so far
+	 * @param totalBytes
+	 *            The bytes of all items
+	 */
+	public void onProgress(long uploadedBytes, long totalBytes) {
+	}
+}
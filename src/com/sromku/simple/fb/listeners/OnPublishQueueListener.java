@@ -0,0 +1,42 @@
+package com.sromku.simple.fb.listeners;
+
+/**
+ * Listener of {@link com.sromku.simple.fb.PublishQueue}. The methods are
+ * called on the main thread, also for items that were queued before the
+ * process was restarted.
+ */
+public abstract class OnPublishQueueListener {
+
+	/**
+	 * The item was written to the disk and will be sent also if the process
+	 * is restarted
+	 * 
+	 * @param key
+	 *            The idempotency key of the item
+	 */
+	public void onQueued(String key) {
+	}
+
+	/**
+	 * The item was published
+	 * 
+	 * @param key
+	 *            The idempotency key of the item
+	 * @param postId
+	 *            The id of the published post
+	 */
+	public void onComplete(String key, String postId) {
+	}
+
+	/**
+	 * The item was rejected by Facebook and removed from the queue. Items
+	 * that failed because of network or server errors are retried and not
+	 * reported here.
+	 * 
+	 * @param key
+	 *            The idempotency key of the item
+	 * @param throwable
+	 */
+	public void onException(String key, Throwable throwable) {
+	}
+}
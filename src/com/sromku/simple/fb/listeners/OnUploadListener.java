@@ -0,0 +1,48 @@
+package com.sromku.simple.fb.listeners;
+
+import com.sromku.simple.fb.actions.UploadVideoAction;
+
+/**
+ * On upload listener. Reports the progress of the upload, and lets to resume
+ * the upload after failure from the last chunk that was accepted by Facebook.
+ */
+public abstract class OnUploadListener extends OnPublishListener {
+
+	private UploadVideoAction mUploadAction;
+
+	/**
+	 * Called on the main thread after each uploaded chunk
+	 * 
+	 * @param uploadedBytes
+	 *            The bytes accepted by Facebook so far
+	 * @param totalBytes
+	 *            The size of the file
+	 */
+	public void onProgress(long uploadedBytes, long totalBytes) {
+	}
+
+	public void setUploadAction(UploadVideoAction uploadAction) {
+		mUploadAction = uploadAction;
+	}
+
+	/**
+	 * Return <code>True</code> if the upload failed in the middle and can be
+	 * resumed by {@link #resume()}.
+	 */
+	public boolean canResume() {
+		if (mUploadAction != null) {
+			return mUploadAction.canResume();
+		}
+		return false;
+	}
+
+	/**
+	 * Continue the failed upload from the last accepted chunk. The result is
+	 * delivered to this listener again.
+	 */
+	public void resume() {
+		if (mUploadAction != null) {
+			mUploadAction.resume();
+		}
+	}
+}
@@ -0,0 +1,77 @@
+package com.sromku.simple.fb.utils;
+
+import java.net.HttpURLConnection;
+import java.util.concurrent.Executor;
+
+import android.os.Build;
+
+import com.facebook.RequestAsyncTask;
+import com.facebook.RequestBatch;
+import com.facebook.Settings;
+
+/**
+ * The default transport. The requests run in {@link RequestAsyncTask} and the
+ * callbacks are called on the main thread. <br>
+ * <br>
+ * Single GET requests ask for a gzip or deflate response, which is
+ * decompressed while it's read. The received bytes are recorded to
+ * {@link TransferStats}.
+ */
+public class AsyncTaskTransport implements Transport {
+
+	private final Executor mExecutor;
+	private final TransferStats mTransferStats;
+
+	/**
+	 * @param executor
+	 *            The executor of the tasks, or <code>null</code> to use the
+	 *            executor of Facebook SDK
+	 */
+	public AsyncTaskTransport(Executor executor) {
+		this(executor, new TransferStats());
+	}
+
+	/**
+	 * @param executor
+	 *            The executor of the tasks, or <code>null</code> to use the
+	 *            executor of Facebook SDK
+	 * @param transferStats
+	 *            The stats to record the responses to
+	 */
+	public AsyncTaskTransport(Executor executor, TransferStats transferStats) {
+		mExecutor = executor;
+		mTransferStats = transferStats;
+	}
+
+	public TransferStats getTransferStats() {
+		return mTransferStats;
+	}
+
+	@Override
+	public void execute(RequestBatch batch) {
+		ConnectionPool.onConnectionOpened();
+		RequestAsyncTask task = null;
+		if (CompressedConnection.isCompressible(batch)) {
+			// nothing is written to the connection of GET request, so it's
+			// safe to build it on this thread
+			try {
+				HttpURLConnection connection = CompressedConnection.open(batch, mTransferStats);
+				task = new RequestAsyncTask(connection, batch);
+			}
+			catch (Exception e) {
+				// the sdk reports failures of building the connection to the callbacks
+				Logger.logWarning(AsyncTaskTransport.class, "Failed to build the connection: " + e.getMessage());
+			}
+		}
+		if (task == null) {
+			task = new RequestAsyncTask(batch);
+		}
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+			// AsyncTask#execute() is serial since honeycomb, while the sdk runs its tasks in parallel
+			task.executeOnExecutor(mExecutor != null ? mExecutor : Settings.getExecutor());
+		}
+		else {
+			task.execute();
+		}
+	}
+}
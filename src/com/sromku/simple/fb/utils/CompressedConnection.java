@@ -0,0 +1,361 @@
+package com.sromku.simple.fb.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.ProtocolException;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import com.facebook.HttpMethod;
+import com.facebook.Request;
+import com.facebook.RequestBatch;
+
+/**
+ * Connection that asks for a compressed response and decompresses it while
+ * Facebook SDK reads it, so the whole response is never held compressed in
+ * memory. The bytes that were received and the bytes after the decompression
+ * are recorded to {@link TransferStats} once the response is read. <br>
+ * <br>
+ * Only single GET requests are compressed. The body of POST and batch
+ * requests is written while the connection is built, and the headers can't
+ * be changed after that.
+ */
+class CompressedConnection extends HttpURLConnection {
+
+	private static final String ACCEPT_ENCODING = "Accept-Encoding";
+	private static final String GZIP = "gzip";
+	private static final String DEFLATE = "deflate";
+	private static final String ENCODINGS = GZIP + ", " + DEFLATE;
+
+	private final HttpURLConnection mConnection;
+	private final TransferStats mTransferStats;
+	private final String mGraphPath;
+
+	private CompressedConnection(HttpURLConnection connection, TransferStats transferStats, String graphPath) {
+		super(connection.getURL());
+		mConnection = connection;
+		mTransferStats = transferStats;
+		mGraphPath = graphPath;
+	}
+
+	/**
+	 * Return <code>True</code> if the batch is a single GET request
+	 * 
+	 * @param batch
+	 */
+	static boolean isCompressible(RequestBatch batch) {
+		return batch.size() == 1 && batch.get(0).getHttpMethod() == HttpMethod.GET;
+	}
+
+	/**
+	 * Build the connection of the batch by Facebook SDK, and ask for a
+	 * compressed response if the batch is a single GET request.
+	 * 
+	 * @param batch
+	 * @param transferStats
+	 * @return The connection
+	 */
+	static HttpURLConnection open(RequestBatch batch, TransferStats transferStats) {
+		HttpURLConnection connection = Request.toHttpConnection(batch);
+		if (!isCompressible(batch)) {
+			return connection;
+		}
+		// setting the header disables the transparent gzip of the platform
+		connection.setRequestProperty(ACCEPT_ENCODING, ENCODINGS);
+		return new CompressedConnection(connection, transferStats, batch.get(0).getGraphPath());
+	}
+
+	@Override
+	public InputStream getInputStream() throws IOException {
+		return decode(new CountingInputStream(mConnection.getInputStream()));
+	}
+
+	@Override
+	public InputStream getErrorStream() {
+		InputStream stream = mConnection.getErrorStream();
+		if (stream == null) {
+			return null;
+		}
+		CountingInputStream compressed = new CountingInputStream(stream);
+		try {
+			return decode(compressed);
+		}
+		catch (IOException e) {
+			Logger.logError(CompressedConnection.class, "Failed to decode the error stream", e);
+			// once the header was read, the rest can't be parsed, so let the
+			// sdk report the http error without the body
+			return compressed.mCount == 0 ? compressed : null;
+		}
+	}
+
+	private InputStream decode(CountingInputStream compressed) throws IOException {
+		String encoding = mConnection.getContentEncoding();
+		if (encoding != null) {
+			encoding = encoding.trim().toLowerCase();
+		}
+		InputStream decoded;
+		if (GZIP.equals(encoding)) {
+			decoded = new GZIPInputStream(compressed);
+		}
+		else if (DEFLATE.equals(encoding)) {
+			decoded = new InflaterInputStream(compressed);
+		}
+		else {
+			encoding = null;
+			decoded = compressed;
+		}
+		return new CountingInputStream(decoded, compressed, encoding);
+	}
+
+	@Override
+	public void connect() throws IOException {
+		mConnection.connect();
+	}
+
+	@Override
+	public void disconnect() {
+		mConnection.disconnect();
+	}
+
+	@Override
+	public boolean usingProxy() {
+		return mConnection.usingProxy();
+	}
+
+	@Override
+	public OutputStream getOutputStream() throws IOException {
+		return mConnection.getOutputStream();
+	}
+
+	@Override
+	public int getResponseCode() throws IOException {
+		return mConnection.getResponseCode();
+	}
+
+	@Override
+	public String getResponseMessage() throws IOException {
+		return mConnection.getResponseMessage();
+	}
+
+	@Override
+	public String getHeaderField(String key) {
+		return mConnection.getHeaderField(key);
+	}
+
+	@Override
+	public String getHeaderField(int position) {
+		return mConnection.getHeaderField(position);
+	}
+
+	@Override
+	public String getHeaderFieldKey(int position) {
+		return mConnection.getHeaderFieldKey(position);
+	}
+
+	@Override
+	public Map<String, List<String>> getHeaderFields() {
+		return mConnection.getHeaderFields();
+	}
+
+	@Override
+	public String getContentType() {
+		return mConnection.getContentType();
+	}
+
+	@Override
+	public String getContentEncoding() {
+		// the response is decoded by this connection
+		return null;
+	}
+
+	@Override
+	public int getContentLength() {
+		// the length of the decoded response isn't known before it's read
+		return mConnection.getContentEncoding() != null ? -1 : mConnection.getContentLength();
+	}
+
+	@Override
+	public void setRequestMethod(String method) throws ProtocolException {
+		mConnection.setRequestMethod(method);
+	}
+
+	@Override
+	public String getRequestMethod() {
+		return mConnection.getRequestMethod();
+	}
+
+	@Override
+	public void setRequestProperty(String field, String newValue) {
+		mConnection.setRequestProperty(field, newValue);
+	}
+
+	@Override
+	public void addRequestProperty(String field, String newValue) {
+		mConnection.addRequestProperty(field, newValue);
+	}
+
+	@Override
+	public String getRequestProperty(String field) {
+		return mConnection.getRequestProperty(field);
+	}
+
+	@Override
+	public Map<String, List<String>> getRequestProperties() {
+		return mConnection.getRequestProperties();
+	}
+
+	@Override
+	public void setConnectTimeout(int timeout) {
+		mConnection.setConnectTimeout(timeout);
+	}
+
+	@Override
+	public int getConnectTimeout() {
+		return mConnection.getConnectTimeout();
+	}
+
+	@Override
+	public void setReadTimeout(int timeout) {
+		mConnection.setReadTimeout(timeout);
+	}
+
+	@Override
+	public int getReadTimeout() {
+		return mConnection.getReadTimeout();
+	}
+
+	@Override
+	public void setDoInput(boolean newValue) {
+		mConnection.setDoInput(newValue);
+	}
+
+	@Override
+	public boolean getDoInput() {
+		return mConnection.getDoInput();
+	}
+
+	@Override
+	public void setDoOutput(boolean newValue) {
+		mConnection.setDoOutput(newValue);
+	}
+
+	@Override
+	public boolean getDoOutput() {
+		return mConnection.getDoOutput();
+	}
+
+	@Override
+	public void setUseCaches(boolean newValue) {
+		mConnection.setUseCaches(newValue);
+	}
+
+	@Override
+	public boolean getUseCaches() {
+		return mConnection.getUseCaches();
+	}
+
+	@Override
+	public void setInstanceFollowRedirects(boolean followRedirects) {
+		mConnection.setInstanceFollowRedirects(followRedirects);
+	}
+
+	@Override
+	public boolean getInstanceFollowRedirects() {
+		return mConnection.getInstanceFollowRedirects();
+	}
+
+	@Override
+	public void setChunkedStreamingMode(int chunkLength) {
+		mConnection.setChunkedStreamingMode(chunkLength);
+	}
+
+	@Override
+	public void setFixedLengthStreamingMode(int contentLength) {
+		mConnection.setFixedLengthStreamingMode(contentLength);
+	}
+
+	@Override
+	public String toString() {
+		return mConnection.toString();
+	}
+
+	/**
+	 * Counts the read bytes, and records the transfer once the end of the
+	 * stream is reached or the stream is closed.
+	 */
+	private class CountingInputStream extends FilterInputStream {
+
+		private final CountingInputStream mCompressed;
+		private final String mEncoding;
+		private long mCount = 0;
+		private boolean mRecorded = false;
+
+		CountingInputStream(InputStream in) {
+			this(in, null, null);
+		}
+
+		CountingInputStream(InputStream in, CountingInputStream compressed, String encoding) {
+			super(in);
+			mCompressed = compressed;
+			mEncoding = encoding;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b >= 0) {
+				mCount++;
+			}
+			else {
+				record();
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] buffer, int offset, int length) throws IOException {
+			int read = super.read(buffer, offset, length);
+			if (read > 0) {
+				mCount += read;
+			}
+			else if (read < 0) {
+				record();
+			}
+			return read;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			long skipped = super.skip(n);
+			mCount += skipped;
+			return skipped;
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+
+		@Override
+		public void close() throws IOException {
+			record();
+			super.close();
+		}
+
+		private void record() {
+			// only the outer stream records, with the count of the inner one
+			if (mCompressed == null || mRecorded) {
+				return;
+			}
+			mRecorded = true;
+			if (mTransferStats != null) {
+				mTransferStats.record(mGraphPath, mEncoding, mCompressed.mCount, mCount);
+			}
+		}
+	}
+}
@@ -0,0 +1,204 @@
+package com.sromku.simple.fb.utils;
+
+import java.security.NoSuchAlgorithmException;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLSessionContext;
+
+import android.os.Build;
+
+/**
+ * Settings of the connections that are shared by all requests. <br>
+ * <br>
+ * The requests of Facebook SDK go through {@link java.net.HttpURLConnection},
+ * which keeps one pool of idle connections for the whole process and reads
+ * its settings from system properties. Thus these settings affect all
+ * connections of the process, and the last applied settings win. The TLS
+ * sessions are cached by the default {@link SSLContext}, so new connections
+ * to the same host resume the session instead of a full handshake. <br>
+ * <br>
+ * The platform reads the pool properties once, when the first connection of
+ * the process is opened. Apply the settings before that, like in
+ * <code>Application.onCreate()</code>, before any request of the library,
+ * Facebook SDK or the app. Settings that are applied later only change the
+ * TLS session cache, and a warning is logged. <br>
+ * <br>
+ * Values that are not set keep the defaults of the platform.
+ * 
+ * <pre>
+ * ConnectionPool connectionPool = new ConnectionPool.Builder()
+ * 	.setMaxIdleConnections(8)
+ * 	.setKeepAliveDuration(5 * 60 * 1000)
+ * 	.setSslSessionTimeout(24 * 60 * 60)
+ * 	.build();
+ * </pre>
+ */
+public class ConnectionPool {
+
+	private static final Class<?> TAG = ConnectionPool.class;
+
+	private static final String KEEP_ALIVE = "http.keepAlive";
+	private static final String KEEP_ALIVE_DURATION = "http.keepAliveDuration";
+	private static final String MAX_CONNECTIONS = "http.maxConnections";
+
+	private static ConnectionPool sApplied = null;
+	private static volatile boolean sConnectionOpened = false;
+
+	private final Boolean mKeepAlive;
+	private final long mKeepAliveDuration;
+	private final int mMaxIdleConnections;
+	private final int mSslSessionCacheSize;
+	private final int mSslSessionTimeout;
+
+	private ConnectionPool(Builder builder) {
+		mKeepAlive = builder.mKeepAlive;
+		mKeepAliveDuration = builder.mKeepAliveDuration;
+		mMaxIdleConnections = builder.mMaxIdleConnections;
+		mSslSessionCacheSize = builder.mSslSessionCacheSize;
+		mSslSessionTimeout = builder.mSslSessionTimeout;
+	}
+
+	/**
+	 * Apply the settings to the connections of the process. Applying the same
+	 * settings again does nothing.
+	 */
+	public void apply() {
+		synchronized (ConnectionPool.class) {
+			if (sApplied == this) {
+				return;
+			}
+			sApplied = this;
+		}
+		boolean poolSettings = mKeepAlive != null || mKeepAliveDuration >= 0 || mMaxIdleConnections >= 0;
+		if (poolSettings && sConnectionOpened) {
+			Logger.logWarning(TAG, "Connections were already opened, the pool settings may be ignored until the process restarts");
+		}
+		if (mKeepAlive != null) {
+			System.setProperty(KEEP_ALIVE, mKeepAlive.toString());
+		}
+		if (mKeepAliveDuration >= 0) {
+			System.setProperty(KEEP_ALIVE_DURATION, String.valueOf(mKeepAliveDuration));
+		}
+		if (mMaxIdleConnections >= 0) {
+			System.setProperty(MAX_CONNECTIONS, String.valueOf(mMaxIdleConnections));
+		}
+		if (mSslSessionCacheSize >= 0 || mSslSessionTimeout >= 0) {
+			applySslSessions();
+		}
+	}
+
+	/**
+	 * Called by the library before it opens a connection
+	 */
+	static void onConnectionOpened() {
+		sConnectionOpened = true;
+	}
+
+	private void applySslSessions() {
+		// SSLContext.getDefault() was added in Gingerbread
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.GINGERBREAD) {
+			return;
+		}
+		try {
+			SSLSessionContext sessionContext = SSLContext.getDefault().getClientSessionContext();
+			if (mSslSessionCacheSize >= 0) {
+				sessionContext.setSessionCacheSize(mSslSessionCacheSize);
+			}
+			if (mSslSessionTimeout >= 0) {
+				sessionContext.setSessionTimeout(mSslSessionTimeout);
+			}
+		}
+		catch (NoSuchAlgorithmException e) {
+			Logger.logError(TAG, "Failed to set the TLS session cache", e);
+		}
+	}
+
+	public Boolean isKeepAlive() {
+		return mKeepAlive;
+	}
+
+	public long getKeepAliveDuration() {
+		return mKeepAliveDuration;
+	}
+
+	public int getMaxIdleConnections() {
+		return mMaxIdleConnections;
+	}
+
+	public int getSslSessionCacheSize() {
+		return mSslSessionCacheSize;
+	}
+
+	public int getSslSessionTimeout() {
+		return mSslSessionTimeout;
+	}
+
+	public static class Builder {
+		private Boolean mKeepAlive = null;
+		private long mKeepAliveDuration = -1;
+		private int mMaxIdleConnections = -1;
+		private int mSslSessionCacheSize = -1;
+		private int mSslSessionTimeout = -1;
+
+		public Builder() {
+		}
+
+		/**
+		 * Keep the connections open after the response to reuse them
+		 * 
+		 * @param keepAlive
+		 */
+		public Builder setKeepAlive(boolean keepAlive) {
+			mKeepAlive = keepAlive;
+			return this;
+		}
+
+		/**
+		 * How long an idle connection is kept in the pool. Used by the
+		 * connections of Android 4.4 and above.
+		 * 
+		 * @param keepAliveDuration
+		 *            The duration in milliseconds
+		 */
+		public Builder setKeepAliveDuration(long keepAliveDuration) {
+			mKeepAliveDuration = keepAliveDuration;
+			return this;
+		}
+
+		/**
+		 * The max number of idle connections to keep in the pool
+		 * 
+		 * @param maxIdleConnections
+		 */
+		public Builder setMaxIdleConnections(int maxIdleConnections) {
+			mMaxIdleConnections = maxIdleConnections;
+			return this;
+		}
+
+		/**
+		 * The max number of cached TLS sessions, <code>0</code> for no limit
+		 * 
+		 * @param sslSessionCacheSize
+		 */
+		public Builder setSslSessionCacheSize(int sslSessionCacheSize) {
+			mSslSessionCacheSize = sslSessionCacheSize;
+			return this;
+		}
+
+		/**
+		 * How long a cached TLS session can be resumed, <code>0</code> for no
+		 * limit
+		 * 
+		 * @param sslSessionTimeout
+		 *            The timeout in seconds
+		 */
+		public Builder setSslSessionTimeout(int sslSessionTimeout) {
+			mSslSessionTimeout = sslSessionTimeout;
+			return this;
+		}
+
+		public ConnectionPool build() {
+			return new ConnectionPool(this);
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package com.sromku.simple.fb.utils;
+
+import java.net.HttpURLConnection;
+import java.util.concurrent.Executor;
+
+import com.facebook.Request;
+import com.facebook.RequestBatch;
+
+/**
+ * Transport that sends the requests on the given executor, without
+ * {@link android.os.AsyncTask} and without the main looper. The connection of
+ * each batch is built by Facebook SDK, and the callbacks are called on the
+ * thread of the executor. The listeners of the actions are called on these
+ * threads as well, and with a pool of several threads the batches of one
+ * action complete concurrently. <br>
+ * <br>
+ * Single GET requests ask for a gzip or deflate response, which is
+ * decompressed while it's read. The received bytes are recorded to
+ * {@link TransferStats}. <br>
+ * <br>
+ * Use it for clients that run in services or worker threads:
+ * 
+ * <pre>
+ * SimpleFacebook client = SimpleFacebook.newInstance(context, configuration, accessToken, null);
+ * client.setTransport(new ConnectionTransport(Executors.newFixedThreadPool(4)));
+ * </pre>
+ * 
+ * The transport still runs on Android only. Facebook SDK and the session
+ * manager need the Android runtime and its main looper, so the actions
+ * can't run on a plain JVM.
+ */
+public class ConnectionTransport implements Transport {
+
+	private final Executor mExecutor;
+	private final TransferStats mTransferStats;
+
+	public ConnectionTransport(Executor executor) {
+		this(executor, new TransferStats());
+	}
+
+	/**
+	 * @param executor
+	 *            The executor of the requests
+	 * @param transferStats
+	 *            The stats to record the responses to
+	 */
+	public ConnectionTransport(Executor executor, TransferStats transferStats) {
+		if (executor == null) {
+			throw new IllegalArgumentException("The executor can't be null");
+		}
+		mExecutor = executor;
+		mTransferStats = transferStats;
+	}
+
+	public TransferStats getTransferStats() {
+		return mTransferStats;
+	}
+
+	@Override
+	public void execute(final RequestBatch batch) {
+		mExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				executeAndWait(batch);
+			}
+		});
+	}
+
+	/**
+	 * Send the requests of the batch on the current thread
+	 * 
+	 * @param batch
+	 */
+	public void executeAndWait(RequestBatch batch) {
+		ConnectionPool.onConnectionOpened();
+		HttpURLConnection connection;
+		try {
+			connection = openConnection(batch);
+		}
+		catch (Exception e) {
+			// the sdk reports failures of building the connection to the callbacks
+			Request.executeBatchAndWait(batch);
+			return;
+		}
+		Request.executeConnectionAndWait(connection, batch);
+	}
+
+	/**
+	 * Build the connection of the batch. Override to change the connection
+	 * before the requests are written.
+	 * 
+	 * @param batch
+	 * @return The connection
+	 */
+	protected HttpURLConnection openConnection(RequestBatch batch) {
+		return CompressedConnection.open(batch, mTransferStats);
+	}
+}
@@ -0,0 +1,195 @@
+package com.sromku.simple.fb.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Cache of files in one directory, bounded by the total size of the files.
+ * When the size is exceeded, the least recently used files are deleted. <br>
+ * <br>
+ * The cache does disk I/O, so don't use it from the main thread.
+ */
+public class DiskCache {
+
+	private static final int BUFFER_SIZE = 8 * 1024;
+
+	private final File mDirectory;
+	private final long mMaxBytes;
+	private long mSize = -1;
+
+	/**
+	 * @param directory
+	 *            The directory of the cache. It will be created if needed.
+	 * @param maxBytes
+	 *            The max total size of cached files
+	 */
+	public DiskCache(File directory, long maxBytes) {
+		mDirectory = directory;
+		mMaxBytes = maxBytes;
+	}
+
+	/**
+	 * Get the cached file
+	 * 
+	 * @param key
+	 *            The key, like url
+	 * @return The file or <code>null</code> if not cached
+	 */
+	public synchronized File get(String key) {
+		File file = getFile(key);
+		if (!file.exists()) {
+			return null;
+		}
+		file.setLastModified(System.currentTimeMillis());
+		return file;
+	}
+
+	/**
+	 * Write the stream to the cache. The stream is copied with a small buffer
+	 * and is not loaded to the memory.
+	 * 
+	 * @param key
+	 *            The key, like url
+	 * @param inputStream
+	 *            The content. The stream isn't closed by this method.
+	 * @return The cached file
+	 * @throws IOException
+	 */
+	public File put(String key, InputStream inputStream) throws IOException {
+		ensureDirectory();
+		File file = getFile(key);
+		File tempFile = new File(mDirectory, file.getName() + ".tmp" + Thread.currentThread().getId());
+		OutputStream outputStream = new FileOutputStream(tempFile);
+		try {
+			byte[] buffer = new byte[BUFFER_SIZE];
+			int read;
+			while ((read = inputStream.read(buffer)) != -1) {
+				outputStream.write(buffer, 0, read);
+			}
+		}
+		catch (IOException e) {
+			outputStream.close();
+			tempFile.delete();
+			throw e;
+		}
+		outputStream.close();
+
+		synchronized (this) {
+			initSize();
+			if (file.exists()) {
+				mSize -= file.length();
+				file.delete();
+			}
+			if (!tempFile.renameTo(file)) {
+				tempFile.delete();
+				throw new IOException("Failed to write the cache file " + file);
+			}
+			mSize += file.length();
+			trim();
+		}
+		return file;
+	}
+
+	/**
+	 * Remove the cached file
+	 * 
+	 * @param key
+	 */
+	public synchronized void remove(String key) {
+		File file = getFile(key);
+		if (file.exists()) {
+			initSize();
+			mSize -= file.length();
+			file.delete();
+		}
+	}
+
+	/**
+	 * Delete all cached files
+	 */
+	public synchronized void clear() {
+		File[] files = mDirectory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		mSize = 0;
+	}
+
+	private void ensureDirectory() throws IOException {
+		if (!mDirectory.exists() && !mDirectory.mkdirs()) {
+			throw new IOException("Failed to create the cache directory " + mDirectory);
+		}
+	}
+
+	private void initSize() {
+		if (mSize >= 0) {
+			return;
+		}
+		mSize = 0;
+		File[] files = mDirectory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				mSize += file.length();
+			}
+		}
+	}
+
+	private void trim() {
+		if (mSize <= mMaxBytes) {
+			return;
+		}
+		File[] files = mDirectory.listFiles();
+		if (files == null) {
+			return;
+		}
+		Arrays.sort(files, new Comparator<File>() {
+			@Override
+			public int compare(File lhs, File rhs) {
+				long lhsModified = lhs.lastModified();
+				long rhsModified = rhs.lastModified();
+				return lhsModified < rhsModified ? -1 : (lhsModified == rhsModified ? 0 : 1);
+			}
+		});
+		for (File file : files) {
+			if (mSize <= mMaxBytes) {
+				break;
+			}
+			long length = file.length();
+			if (file.delete()) {
+				mSize -= length;
+			}
+		}
+	}
+
+	private File getFile(String key) {
+		return new File(mDirectory, hash(key));
+	}
+
+	private static String hash(String key) {
+		try {
+			MessageDigest digest = MessageDigest.getInstance("MD5");
+			byte[] bytes = digest.digest(key.getBytes("UTF-8"));
+			StringBuilder builder = new StringBuilder(bytes.length * 2);
+			for (byte b : bytes) {
+				builder.append(Character.forDigit((b >> 4) & 0xf, 16));
+				builder.append(Character.forDigit(b & 0xf, 16));
+			}
+			return builder.toString();
+		}
+		catch (NoSuchAlgorithmException e) {
+			return String.valueOf(key.hashCode());
+		}
+		catch (IOException e) {
+			return String.valueOf(key.hashCode());
+		}
+	}
+}
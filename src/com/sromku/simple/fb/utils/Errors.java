@@ -2,12 +2,16 @@ package com.sromku.simple.fb.utils;
 
 import java.util.Locale;
 
+import com.facebook.FacebookRequestError;
+
 public class Errors {
 	public static enum ErrorMsg {
 		LOGIN("You are not logged in"),
 		CANCEL_WEB_LOGIN("User canceled the login web dialog"),
 		PERMISSIONS_PUBLISH("Publish permission: '%s' wasn't set by SimpleFacebookConfiguration"),
-		CANCEL_PERMISSIONS_PUBLISH("Publish permissions: '%s' weren't accepted by user");
+		CANCEL_PERMISSIONS_PUBLISH("Publish permissions: '%s' weren't accepted by user"),
+		DIALOG_ACTIVITY("Dialogs can't be opened without Activity, initialize SimpleFacebook with your current Activity"),
+		PENDING_REQUEST("The previous login or permissions request isn't finished yet");
 
 		private String mMsg;
 
@@ -39,4 +43,20 @@ public class Errors {
 	public static String getError(ErrorMsg errorMsg) {
 		return errorMsg.message();
 	}
+
+	/**
+	 * Return <code>True</code> if the same request may succeed later, like
+	 * when the connection was dropped or the server is busy.
+	 * 
+	 * @param error
+	 * @return
+	 */
+	public static boolean isTransient(FacebookRequestError error) {
+		// no http status means the connection was dropped
+		if (error.getRequestStatusCode() < 0) {
+			return true;
+		}
+		FacebookRequestError.Category category = error.getCategory();
+		return category == FacebookRequestError.Category.SERVER || category == FacebookRequestError.Category.THROTTLING;
+	}
 }
@@ -0,0 +1,285 @@
+package com.sromku.simple.fb.utils;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import android.os.Build;
+
+import com.sromku.simple.fb.entities.Profile;
+
+/**
+ * In-memory search index over friends names. Every word of the name is added
+ * to a prefix tree, and each node of the tree keeps the friends whose name
+ * has a word starting with this prefix. Search by prefix costs the same no
+ * matter how many friends are indexed. <br>
+ * <br>
+ * Matching ignores case and accents, so <code>"jose"</code> will find
+ * <em>Jos&eacute;</em>. Query with several words returns friends that match all of
+ * them, like <code>"jo sm"</code> for <em>John Smith</em>. <br>
+ * <br>
+ * Pass the index to
+ * {@link com.sromku.simple.fb.SimpleFacebook#getFriends(com.sromku.simple.fb.entities.Profile.Properties, FriendsSearchIndex, com.sromku.simple.fb.listeners.OnFriendsListener)
+ * getFriends(...)} and it will be updated with each page of friends.
+ */
+public class FriendsSearchIndex {
+
+	private static final boolean FOLD_ACCENTS = Build.VERSION.SDK_INT >= Build.VERSION_CODES.GINGERBREAD;
+
+	private final Node mRoot = new Node();
+	private final List<Profile> mProfiles = new ArrayList<Profile>();
+	private final Map<String, Integer> mPositions = new HashMap<String, Integer>();
+
+	public FriendsSearchIndex() {
+	}
+
+	/**
+	 * Add the friend to the index. If the friend with the same id was already
+	 * added, then the indexed profile is replaced and the words of its name
+	 * are kept.
+	 *
+	 * @param profile
+	 */
+	public synchronized void add(Profile profile) {
+		Integer position = mPositions.get(profile.getId());
+		if (position != null) {
+			mProfiles.set(position, profile);
+			return;
+		}
+
+		position = mProfiles.size();
+		mProfiles.add(profile);
+		mPositions.put(profile.getId(), position);
+
+		for (String word : split(normalize(getText(profile)))) {
+			Node node = mRoot;
+			for (int i = 0; i < word.length(); i++) {
+				node = node.child(word.charAt(i));
+				node.add(position);
+			}
+		}
+	}
+
+	/**
+	 * Add all friends to the index
+	 *
+	 * @param profiles
+	 */
+	public synchronized void addAll(Collection<Profile> profiles) {
+		for (Profile profile : profiles) {
+			add(profile);
+		}
+	}
+
+	/**
+	 * Search friends whose name words start with the words of the query.
+	 *
+	 * @param query
+	 *            The query, like <code>"jo"</code> or <code>"jo sm"</code>
+	 * @return The matched friends in the order they were added
+	 */
+	public List<Profile> search(String query) {
+		return search(query, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Search friends whose name words start with the words of the query.
+	 *
+	 * @param query
+	 *            The query, like <code>"jo"</code> or <code>"jo sm"</code>
+	 * @param limit
+	 *            The max number of results
+	 * @return The matched friends in the order they were added
+	 */
+	public synchronized List<Profile> search(String query, int limit) {
+		List<Profile> result = new ArrayList<Profile>();
+		List<String> words = split(normalize(query));
+		if (words.size() == 0) {
+			return result;
+		}
+
+		// find the nodes of all query words, starting from the smallest one
+		Node[] nodes = new Node[words.size()];
+		int smallest = 0;
+		for (int i = 0; i < nodes.length; i++) {
+			Node node = mRoot.find(words.get(i));
+			if (node == null) {
+				return result;
+			}
+			nodes[i] = node;
+			if (node.mCount < nodes[smallest].mCount) {
+				smallest = i;
+			}
+		}
+
+		// positions in each node are sorted, so intersect them by walking once
+		int[] cursors = new int[nodes.length];
+		Node base = nodes[smallest];
+		for (int i = 0; i < base.mCount && result.size() < limit; i++) {
+			int position = base.mPositions[i];
+			boolean matchAll = true;
+			for (int j = 0; j < nodes.length && matchAll; j++) {
+				if (j == smallest) {
+					continue;
+				}
+				Node node = nodes[j];
+				while (cursors[j] < node.mCount && node.mPositions[cursors[j]] < position) {
+					cursors[j]++;
+				}
+				matchAll = cursors[j] < node.mCount && node.mPositions[cursors[j]] == position;
+			}
+			if (matchAll) {
+				result.add(mProfiles.get(position));
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The number of indexed friends
+	 */
+	public synchronized int size() {
+		return mProfiles.size();
+	}
+
+	/**
+	 * Remove all friends from the index
+	 */
+	public synchronized void clear() {
+		mRoot.clear();
+		mProfiles.clear();
+		mPositions.clear();
+	}
+
+	private static String getText(Profile profile) {
+		String name = profile.getName();
+		// missing values are converted to "null" by Utils.getPropertyString
+		if (name != null && !"null".equals(name)) {
+			return name;
+		}
+		StringBuilder builder = new StringBuilder();
+		for (String part : new String[] { profile.getFirstName(), profile.getMiddleName(), profile.getLastName() }) {
+			if (part != null && !"null".equals(part)) {
+				builder.append(part).append(' ');
+			}
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Lower case the text and remove the accents
+	 */
+	static String normalize(String text) {
+		if (text == null) {
+			return Utils.EMPTY;
+		}
+		if (FOLD_ACCENTS) {
+			text = Normalizer.normalize(text, Normalizer.Form.NFD);
+		}
+		StringBuilder builder = new StringBuilder(text.length());
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (Character.getType(c) == Character.NON_SPACING_MARK) {
+				continue;
+			}
+			builder.append(Character.toLowerCase(c));
+		}
+		return builder.toString();
+	}
+
+	private static List<String> split(String text) {
+		List<String> words = new ArrayList<String>();
+		int start = -1;
+		for (int i = 0; i <= text.length(); i++) {
+			boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+			if (letter && start < 0) {
+				start = i;
+			}
+			else if (!letter && start >= 0) {
+				words.add(text.substring(start, i));
+				start = -1;
+			}
+		}
+		return words;
+	}
+
+	private static class Node {
+		private char[] mKeys = null;
+		private Node[] mChildren = null;
+		private int mChildrenCount = 0;
+
+		private int[] mPositions = null;
+		private int mCount = 0;
+
+		Node child(char key) {
+			for (int i = 0; i < mChildrenCount; i++) {
+				if (mKeys[i] == key) {
+					return mChildren[i];
+				}
+			}
+			if (mKeys == null) {
+				mKeys = new char[2];
+				mChildren = new Node[2];
+			}
+			else if (mChildrenCount == mKeys.length) {
+				char[] keys = new char[mChildrenCount * 2];
+				Node[] children = new Node[mChildrenCount * 2];
+				System.arraycopy(mKeys, 0, keys, 0, mChildrenCount);
+				System.arraycopy(mChildren, 0, children, 0, mChildrenCount);
+				mKeys = keys;
+				mChildren = children;
+			}
+			Node node = new Node();
+			mKeys[mChildrenCount] = key;
+			mChildren[mChildrenCount] = node;
+			mChildrenCount++;
+			return node;
+		}
+
+		Node find(String word) {
+			Node node = this;
+			for (int i = 0; i < word.length() && node != null; i++) {
+				Node next = null;
+				char key = word.charAt(i);
+				for (int j = 0; j < node.mChildrenCount; j++) {
+					if (node.mKeys[j] == key) {
+						next = node.mChildren[j];
+						break;
+					}
+				}
+				node = next;
+			}
+			return node;
+		}
+
+		/**
+		 * Positions are added in increasing order, thus the same friend with
+		 * two words of the same prefix is added only once
+		 */
+		void add(int position) {
+			if (mCount > 0 && mPositions[mCount - 1] == position) {
+				return;
+			}
+			if (mPositions == null) {
+				mPositions = new int[4];
+			}
+			else if (mCount == mPositions.length) {
+				int[] positions = new int[mCount * 2];
+				System.arraycopy(mPositions, 0, positions, 0, mCount);
+				mPositions = positions;
+			}
+			mPositions[mCount++] = position;
+		}
+
+		void clear() {
+			mKeys = null;
+			mChildren = null;
+			mChildrenCount = 0;
+			mPositions = null;
+			mCount = 0;
+		}
+	}
+}
@@ -0,0 +1,456 @@
+package com.sromku.simple.fb.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.widget.ImageView;
+
+import com.sromku.simple.fb.entities.Photo;
+import com.sromku.simple.fb.entities.Photo.ImageSource;
+import com.sromku.simple.fb.listeners.OnImageListener;
+
+/**
+ * Loader of images, like photos and profile pictures. <br>
+ * <br>
+ * For each photo, the loader picks the smallest {@link ImageSource} that is
+ * at least as large as the target size, and then decodes it with a sample
+ * size that fits the target. Images are kept in a bounded memory cache and
+ * in a disk cache, and are downloaded and decoded off the main thread.
+ * Bitmaps that were evicted from the memory cache are reused for next
+ * decodes when the device allows it. <br>
+ * <br>
+ * Call the <code>load</code> methods from the main thread only. The results
+ * are delivered on the main thread as well.
+ */
+public class ImageLoader {
+
+	private static final String DISK_CACHE_DIRECTORY = "simple_fb_images";
+	private static final long DEFAULT_DISK_CACHE_SIZE = 20 * 1024 * 1024;
+	private static final int DEFAULT_THREADS = 3;
+	private static final int MAX_POOL_SIZE = 8;
+	private static final int TIMEOUT = 15 * 1000;
+
+	private final DiskCache mDiskCache;
+	private final MemoryCache mMemoryCache;
+	private final List<Bitmap> mBitmapPool = new LinkedList<Bitmap>();
+	private final Map<String, List<OnImageListener>> mPending = new HashMap<String, List<OnImageListener>>();
+	private final Map<ImageView, String> mViews = new WeakHashMap<ImageView, String>();
+	// bitmaps given to listeners of the app, never reused for decoding
+	private final Map<Bitmap, Boolean> mSharedBitmaps = new WeakHashMap<Bitmap, Boolean>();
+	private final Handler mHandler = new Handler(Looper.getMainLooper());
+	private final ExecutorService mExecutor;
+
+	/**
+	 * Create the loader with memory cache of 1/8 of the available heap and
+	 * 20MB of disk cache.
+	 * 
+	 * @param context
+	 */
+	public ImageLoader(Context context) {
+		this(context, (int) (Runtime.getRuntime().maxMemory() / 8), DEFAULT_DISK_CACHE_SIZE);
+	}
+
+	/**
+	 * @param context
+	 * @param memoryCacheBytes
+	 *            The max size of decoded bitmaps in the memory
+	 * @param diskCacheBytes
+	 *            The max size of downloaded images on the disk
+	 */
+	public ImageLoader(Context context, int memoryCacheBytes, long diskCacheBytes) {
+		File directory = new File(context.getCacheDir(), DISK_CACHE_DIRECTORY);
+		mDiskCache = new DiskCache(directory, diskCacheBytes);
+		mMemoryCache = new MemoryCache(memoryCacheBytes);
+		mExecutor = Executors.newFixedThreadPool(DEFAULT_THREADS);
+	}
+
+	/**
+	 * Load the photo into the image view. The image source is picked by the
+	 * size of the view. If the view wasn't measured yet, then the loading
+	 * starts after the layout.
+	 * 
+	 * @param photo
+	 * @param imageView
+	 */
+	public void load(final Photo photo, final ImageView imageView) {
+		int width = imageView.getWidth();
+		int height = imageView.getHeight();
+		if (width == 0 || height == 0) {
+			mViews.put(imageView, photo.getId());
+			imageView.post(new Runnable() {
+				@Override
+				public void run() {
+					// the view may have been bound to another image meanwhile
+					if (photo.getId().equals(mViews.get(imageView)) && imageView.getWidth() > 0) {
+						load(photo, imageView);
+					}
+				}
+			});
+			return;
+		}
+		ImageSource imageSource = photo.getImageSource(width, height);
+		String url = imageSource != null ? imageSource.getSource() : photo.getSource();
+		load(url, imageView);
+	}
+
+	/**
+	 * Load the image from the url into the image view. The image is decoded
+	 * by the size of the view.
+	 * 
+	 * @param url
+	 * @param imageView
+	 */
+	public void load(String url, final ImageView imageView) {
+		final String key = getKey(url, imageView.getWidth(), imageView.getHeight());
+		mViews.put(imageView, key);
+		Bitmap bitmap = mMemoryCache.get(key);
+		if (bitmap != null) {
+			imageView.setImageBitmap(bitmap);
+			return;
+		}
+		imageView.setImageBitmap(null);
+		load(url, imageView.getWidth(), imageView.getHeight(), new ViewListener() {
+			@Override
+			public void onComplete(Bitmap response) {
+				if (key.equals(mViews.get(imageView))) {
+					imageView.setImageBitmap(response);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Load the photo in the size that fits the target size
+	 * 
+	 * @param photo
+	 * @param width
+	 *            The target width
+	 * @param height
+	 *            The target height
+	 * @param onImageListener
+	 */
+	public void load(Photo photo, int width, int height, OnImageListener onImageListener) {
+		ImageSource imageSource = photo.getImageSource(width, height);
+		String url = imageSource != null ? imageSource.getSource() : photo.getSource();
+		load(url, width, height, onImageListener);
+	}
+
+	/**
+	 * Load the image from the url and decode it to fit the target size
+	 * 
+	 * @param url
+	 * @param width
+	 *            The target width. Use 0 to decode the full image.
+	 * @param height
+	 *            The target height. Use 0 to decode the full image.
+	 * @param onImageListener
+	 */
+	public void load(final String url, final int width, final int height, OnImageListener onImageListener) {
+		if (url == null) {
+			onImageListener.onFail("No image url");
+			return;
+		}
+		final String key = getKey(url, width, height);
+		Bitmap bitmap = mMemoryCache.get(key);
+		if (bitmap != null) {
+			share(bitmap, onImageListener);
+			onImageListener.onComplete(bitmap);
+			return;
+		}
+
+		// same image is requested twice, wait for the first request
+		List<OnImageListener> listeners = mPending.get(key);
+		if (listeners != null) {
+			listeners.add(onImageListener);
+			return;
+		}
+		listeners = new ArrayList<OnImageListener>();
+		listeners.add(onImageListener);
+		mPending.put(key, listeners);
+		onImageListener.onThinking();
+
+		mExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				Bitmap bitmap = null;
+				Throwable error = null;
+				try {
+					File file = fetch(url);
+					bitmap = decode(file, width, height);
+				}
+				catch (Throwable e) {
+					Logger.logError(ImageLoader.class, "Failed to load image " + url, e);
+					error = e;
+				}
+				deliver(key, bitmap, error);
+			}
+		});
+	}
+
+	/**
+	 * Download the image to the disk cache without decoding it
+	 * 
+	 * @param url
+	 */
+	public void prefetch(final String url) {
+		if (url == null) {
+			return;
+		}
+		mExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					fetch(url);
+				}
+				catch (IOException e) {
+					Logger.logError(ImageLoader.class, "Failed to prefetch image " + url, e);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Release all bitmaps of the memory cache, for example on low memory.
+	 */
+	public void clearMemory() {
+		mMemoryCache.clear();
+		synchronized (mBitmapPool) {
+			mBitmapPool.clear();
+		}
+	}
+
+	/**
+	 * Stop the loading threads. The loader can't be used after that.
+	 */
+	public void shutdown() {
+		mExecutor.shutdownNow();
+		clearMemory();
+	}
+
+	private void deliver(final String key, final Bitmap bitmap, final Throwable error) {
+		if (bitmap != null) {
+			mMemoryCache.put(key, bitmap);
+		}
+		mHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				List<OnImageListener> listeners = mPending.remove(key);
+				if (listeners == null) {
+					return;
+				}
+				for (OnImageListener listener : listeners) {
+					if (bitmap != null) {
+						share(bitmap, listener);
+						listener.onComplete(bitmap);
+					}
+					else if (error != null) {
+						listener.onException(error);
+					}
+					else {
+						listener.onFail("Failed to decode the image");
+					}
+				}
+			}
+		});
+	}
+
+	/**
+	 * Remember the bitmap if it's given to the listener of the app, which may
+	 * keep drawing it after it was evicted from the memory cache
+	 */
+	private void share(Bitmap bitmap, OnImageListener listener) {
+		if (!(listener instanceof ViewListener)) {
+			mSharedBitmaps.put(bitmap, Boolean.TRUE);
+		}
+	}
+
+	private File fetch(String url) throws IOException {
+		File file = mDiskCache.get(url);
+		if (file != null) {
+			return file;
+		}
+		ConnectionPool.onConnectionOpened();
+		HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+		connection.setConnectTimeout(TIMEOUT);
+		connection.setReadTimeout(TIMEOUT);
+		try {
+			if (connection.getResponseCode() != HttpURLConnection.HTTP_OK) {
+				throw new IOException("Unexpected response code " + connection.getResponseCode());
+			}
+			InputStream inputStream = connection.getInputStream();
+			try {
+				return mDiskCache.put(url, inputStream);
+			}
+			finally {
+				inputStream.close();
+			}
+		}
+		finally {
+			connection.disconnect();
+		}
+	}
+
+	private Bitmap decode(File file, int width, int height) {
+		String path = file.getAbsolutePath();
+		BitmapFactory.Options options = new BitmapFactory.Options();
+		options.inJustDecodeBounds = true;
+		BitmapFactory.decodeFile(path, options);
+
+		options.inJustDecodeBounds = false;
+		options.inSampleSize = getSampleSize(options.outWidth, options.outHeight, width, height);
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB) {
+			options.inMutable = true;
+			options.inBitmap = takeReusable(options);
+			if (options.inBitmap != null) {
+				try {
+					return BitmapFactory.decodeFile(path, options);
+				}
+				catch (IllegalArgumentException e) {
+					// the bitmap can't be reused, decode into a new one
+					options.inBitmap = null;
+				}
+			}
+		}
+		return BitmapFactory.decodeFile(path, options);
+	}
+
+	/**
+	 * The largest power of 2 that keeps the image at least as large as the
+	 * target size
+	 */
+	private static int getSampleSize(int imageWidth, int imageHeight, int width, int height) {
+		int sampleSize = 1;
+		if (width <= 0 || height <= 0) {
+			return sampleSize;
+		}
+		while (imageWidth / (sampleSize * 2) >= width && imageHeight / (sampleSize * 2) >= height) {
+			sampleSize *= 2;
+		}
+		return sampleSize;
+	}
+
+	private Bitmap takeReusable(BitmapFactory.Options options) {
+		int width = options.outWidth / options.inSampleSize;
+		int height = options.outHeight / options.inSampleSize;
+		synchronized (mBitmapPool) {
+			Iterator<Bitmap> iterator = mBitmapPool.iterator();
+			while (iterator.hasNext()) {
+				Bitmap bitmap = iterator.next();
+				if (bitmap.isRecycled() || !bitmap.isMutable()) {
+					iterator.remove();
+					continue;
+				}
+				if (canReuse(bitmap, width, height, options.inSampleSize)) {
+					iterator.remove();
+					return bitmap;
+				}
+			}
+		}
+		return null;
+	}
+
+	private static boolean canReuse(Bitmap bitmap, int width, int height, int sampleSize) {
+		if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.KITKAT) {
+			return (long) width * height * 4 <= bitmap.getAllocationByteCount();
+		}
+		// before KitKat only bitmaps of the exact size and without sampling
+		return sampleSize == 1 && bitmap.getWidth() == width && bitmap.getHeight() == height;
+	}
+
+	private void recycleToPool(String key, Bitmap bitmap) {
+		if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB || !bitmap.isMutable()) {
+			return;
+		}
+		final String evictedKey = key;
+		final Bitmap evicted = bitmap;
+		// the view and shared maps are touched on the main thread only
+		mHandler.post(new Runnable() {
+			@Override
+			public void run() {
+				if (mViews.containsValue(evictedKey) || mSharedBitmaps.containsKey(evicted)) {
+					return;
+				}
+				synchronized (mBitmapPool) {
+					if (mBitmapPool.size() >= MAX_POOL_SIZE) {
+						mBitmapPool.remove(0);
+					}
+					mBitmapPool.add(evicted);
+				}
+			}
+		});
+	}
+
+	/**
+	 * Listener of image views that are managed by the loader
+	 */
+	private static abstract class ViewListener extends OnImageListener {
+	}
+
+	private static String getKey(String url, int width, int height) {
+		return url + "#" + width + "x" + height;
+	}
+
+	private static int getSize(Bitmap bitmap) {
+		return bitmap.getRowBytes() * bitmap.getHeight();
+	}
+
+	/**
+	 * LRU cache of bitmaps bounded by the bytes of the bitmaps
+	 */
+	private class MemoryCache {
+		private final LinkedHashMap<String, Bitmap> mBitmaps = new LinkedHashMap<String, Bitmap>(16, 0.75f, true);
+		private final int mMaxBytes;
+		private int mSize = 0;
+
+		MemoryCache(int maxBytes) {
+			mMaxBytes = maxBytes;
+		}
+
+		synchronized Bitmap get(String key) {
+			return mBitmaps.get(key);
+		}
+
+		synchronized void put(String key, Bitmap bitmap) {
+			Bitmap previous = mBitmaps.put(key, bitmap);
+			if (previous != null) {
+				mSize -= getSize(previous);
+			}
+			mSize += getSize(bitmap);
+
+			Iterator<Map.Entry<String, Bitmap>> iterator = mBitmaps.entrySet().iterator();
+			while (mSize > mMaxBytes && iterator.hasNext()) {
+				Map.Entry<String, Bitmap> entry = iterator.next();
+				if (entry.getValue() == bitmap) {
+					continue;
+				}
+				iterator.remove();
+				mSize -= getSize(entry.getValue());
+				recycleToPool(entry.getKey(), entry.getValue());
+			}
+		}
+
+		synchronized void clear() {
+			mBitmaps.clear();
+			mSize = 0;
+		}
+	}
+}
@@ -0,0 +1,183 @@
+package com.sromku.simple.fb.utils;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+
+/**
+ * Writes image sources to a temporary file with a small buffer, so the image
+ * can be uploaded from a file descriptor and never held in the heap as a
+ * whole. Optionally, the image is downscaled and recompressed on the way. <br>
+ * <br>
+ * The methods do disk I/O, so don't call them from the main thread.
+ */
+public class ImageSpooler {
+
+	private static final int BUFFER_SIZE = 8 * 1024;
+	private static final String PREFIX = "simple_fb_upload";
+
+	/**
+	 * Source of image bytes
+	 */
+	public static abstract class Source {
+
+		abstract void writeTo(FileOutputStream outputStream) throws IOException;
+
+		/**
+		 * The stream is read to the end and closed
+		 */
+		public static Source from(final InputStream inputStream) {
+			return new Source() {
+				@Override
+				void writeTo(FileOutputStream outputStream) throws IOException {
+					try {
+						byte[] buffer = new byte[BUFFER_SIZE];
+						int read;
+						while ((read = inputStream.read(buffer)) != -1) {
+							outputStream.write(buffer, 0, read);
+						}
+					}
+					finally {
+						inputStream.close();
+					}
+				}
+			};
+		}
+
+		/**
+		 * The remaining bytes of the buffer are written. The position of the
+		 * buffer is not changed.
+		 */
+		public static Source from(final ByteBuffer byteBuffer) {
+			return new Source() {
+				@Override
+				void writeTo(FileOutputStream outputStream) throws IOException {
+					ByteBuffer buffer = byteBuffer.duplicate();
+					FileChannel channel = outputStream.getChannel();
+					while (buffer.hasRemaining()) {
+						channel.write(buffer);
+					}
+				}
+			};
+		}
+
+		/**
+		 * The whole channel is transferred, without changing its position. The
+		 * channel is not closed.
+		 */
+		public static Source from(final FileChannel fileChannel) {
+			return new Source() {
+				@Override
+				void writeTo(FileOutputStream outputStream) throws IOException {
+					FileChannel channel = outputStream.getChannel();
+					long size = fileChannel.size();
+					long position = 0;
+					while (position < size) {
+						position += fileChannel.transferTo(position, size - position, channel);
+					}
+				}
+			};
+		}
+	}
+
+	/**
+	 * Write the source to a new temporary file
+	 * 
+	 * @param source
+	 * @param directory
+	 *            The directory of the temporary file
+	 * @return The file. Delete it when not needed anymore.
+	 * @throws IOException
+	 */
+	public static File spool(Source source, File directory) throws IOException {
+		File file = File.createTempFile(PREFIX, null, directory);
+		FileOutputStream outputStream = new FileOutputStream(file);
+		try {
+			source.writeTo(outputStream);
+		}
+		catch (IOException e) {
+			outputStream.close();
+			file.delete();
+			throw e;
+		}
+		outputStream.close();
+		return file;
+	}
+
+	/**
+	 * Downscale the image to fit the max size and recompress it as JPEG. The
+	 * image is decoded with sample size, so the full resolution image is never
+	 * loaded.
+	 * 
+	 * @param file
+	 *            The image file
+	 * @param maxWidth
+	 * @param maxHeight
+	 * @param quality
+	 *            The JPEG quality, 0-100
+	 * @return The file of the downscaled image, or the same file if the image
+	 *         already fits
+	 * @throws IOException
+	 */
+	public static File downscale(File file, int maxWidth, int maxHeight, int quality) throws IOException {
+		String path = file.getAbsolutePath();
+		BitmapFactory.Options options = new BitmapFactory.Options();
+		options.inJustDecodeBounds = true;
+		BitmapFactory.decodeFile(path, options);
+		int width = options.outWidth;
+		int height = options.outHeight;
+		if (width <= 0 || height <= 0) {
+			throw new IOException("Failed to decode the image");
+		}
+		if (width <= maxWidth && height <= maxHeight) {
+			return file;
+		}
+
+		// the largest sample that keeps the image at least as large as needed
+		float scale = Math.min((float) maxWidth / width, (float) maxHeight / height);
+		int targetWidth = Math.max(1, Math.round(width * scale));
+		int targetHeight = Math.max(1, Math.round(height * scale));
+		int sampleSize = 1;
+		while (width / (sampleSize * 2) >= targetWidth && height / (sampleSize * 2) >= targetHeight) {
+			sampleSize *= 2;
+		}
+
+		options.inJustDecodeBounds = false;
+		options.inSampleSize = sampleSize;
+		Bitmap bitmap = BitmapFactory.decodeFile(path, options);
+		if (bitmap == null) {
+			throw new IOException("Failed to decode the image");
+		}
+		if (bitmap.getWidth() != targetWidth || bitmap.getHeight() != targetHeight) {
+			Bitmap scaled = Bitmap.createScaledBitmap(bitmap, targetWidth, targetHeight, true);
+			if (scaled != bitmap) {
+				bitmap.recycle();
+				bitmap = scaled;
+			}
+		}
+
+		File scaledFile = File.createTempFile(PREFIX, ".jpg", file.getParentFile());
+		FileOutputStream outputStream = new FileOutputStream(scaledFile);
+		try {
+			if (!bitmap.compress(Bitmap.CompressFormat.JPEG, quality, outputStream)) {
+				throw new IOException("Failed to compress the image");
+			}
+		}
+		catch (IOException e) {
+			outputStream.close();
+			scaledFile.delete();
+			throw e;
+		}
+		finally {
+			bitmap.recycle();
+		}
+		outputStream.close();
+		return scaledFile;
+	}
+}
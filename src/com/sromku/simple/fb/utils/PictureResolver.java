@@ -0,0 +1,127 @@
+package com.sromku.simple.fb.utils;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Cache of profile picture urls per user id and picture attributes (width,
+ * height and {@link PictureAttributes.PictureType}). <br>
+ * <br>
+ * Urls that are missing in the cache are resolved by
+ * {@link com.sromku.simple.fb.SimpleFacebook#getPictures(Collection, PictureAttributes, com.sromku.simple.fb.listeners.OnPicturesListener)
+ * getPictures(...)} for many users in one request. If {@link ImageLoader} is
+ * set, the resolved pictures are prefetched to its disk cache.
+ */
+public class PictureResolver {
+
+	private static final String PICTURE = "picture";
+	private static final int DEFAULT_MAX_ENTRIES = 1000;
+
+	private final Map<String, String> mUrls;
+	private ImageLoader mImageLoader = null;
+
+	public PictureResolver() {
+		this(DEFAULT_MAX_ENTRIES);
+	}
+
+	/**
+	 * @param maxEntries
+	 *            The max number of cached urls. The least recently used are
+	 *            removed first.
+	 */
+	public PictureResolver(final int maxEntries) {
+		mUrls = new LinkedHashMap<String, String>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Set the loader that will prefetch resolved pictures
+	 * 
+	 * @param imageLoader
+	 */
+	public void setImageLoader(ImageLoader imageLoader) {
+		mImageLoader = imageLoader;
+	}
+
+	public ImageLoader getImageLoader() {
+		return mImageLoader;
+	}
+
+	/**
+	 * Get the cached picture url
+	 * 
+	 * @param userId
+	 * @param pictureAttributes
+	 *            The attributes or <code>null</code> for the default picture
+	 * @return The url or <code>null</code> if wasn't resolved yet
+	 */
+	public synchronized String get(String userId, PictureAttributes pictureAttributes) {
+		return mUrls.get(getKey(userId, pictureAttributes));
+	}
+
+	/**
+	 * Cache the picture url and prefetch it if {@link ImageLoader} was set
+	 * 
+	 * @param userId
+	 * @param pictureAttributes
+	 * @param url
+	 */
+	public void put(String userId, PictureAttributes pictureAttributes, String url) {
+		synchronized (this) {
+			mUrls.put(getKey(userId, pictureAttributes), url);
+		}
+		if (mImageLoader != null) {
+			mImageLoader.prefetch(url);
+		}
+	}
+
+	/**
+	 * Get the user ids without cached picture url
+	 * 
+	 * @param userIds
+	 * @param pictureAttributes
+	 * @return The ids to resolve
+	 */
+	public synchronized List<String> getMissing(Collection<String> userIds, PictureAttributes pictureAttributes) {
+		List<String> missing = new ArrayList<String>();
+		for (String userId : userIds) {
+			if (!mUrls.containsKey(getKey(userId, pictureAttributes))) {
+				missing.add(userId);
+			}
+		}
+		return missing;
+	}
+
+	/**
+	 * Remove all cached urls
+	 */
+	public synchronized void clear() {
+		mUrls.clear();
+	}
+
+	/**
+	 * Get the field to request, like <code>picture.width(100).height(100)</code>
+	 * 
+	 * @param pictureAttributes
+	 *            The attributes or <code>null</code> for the default picture
+	 */
+	public static String getField(PictureAttributes pictureAttributes) {
+		if (pictureAttributes == null || pictureAttributes.getAttributes().size() == 0) {
+			return PICTURE;
+		}
+		return PICTURE + '.' + Utils.join(pictureAttributes.getAttributes(), '.', '(', ')');
+	}
+
+	private static String getKey(String userId, PictureAttributes pictureAttributes) {
+		return userId + '/' + getField(pictureAttributes);
+	}
+}
@@ -0,0 +1,169 @@
+package com.sromku.simple.fb.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import android.os.Bundle;
+
+/**
+ * Options of a list query that are applied on the server side: max number of
+ * items, time range and the fields to return. <br>
+ * <br>
+ * For example, to get the 10 last photos of the last week with only the id
+ * and the source:
+ * 
+ * <pre>
+ * QueryOptions queryOptions = new QueryOptions.Builder()
+ * 	.setLimit(10)
+ * 	.setSince(lastWeek)
+ * 	.addField(&quot;id&quot;)
+ * 	.addField(&quot;source&quot;)
+ * 	.build();
+ * </pre>
+ * 
+ * @see https://developers.facebook.com/docs/graph-api/using-graph-api/#paging
+ */
+public class QueryOptions {
+
+	private static final String DATE_FORMAT = "date_format";
+	private static final String LIMIT = "limit";
+	private static final String SINCE = "since";
+	private static final String UNTIL = "until";
+	private static final String FIELDS = "fields";
+
+	private final Integer mLimit;
+	private final Long mSince;
+	private final Long mUntil;
+	private final List<String> mFields;
+
+	private QueryOptions(Builder builder) {
+		mLimit = builder.mLimit;
+		mSince = builder.mSince;
+		mUntil = builder.mUntil;
+		mFields = Collections.unmodifiableList(new ArrayList<String>(builder.mFields));
+	}
+
+	public Integer getLimit() {
+		return mLimit;
+	}
+
+	/**
+	 * @return Unix time in seconds or <code>null</code>
+	 */
+	public Long getSince() {
+		return mSince;
+	}
+
+	/**
+	 * @return Unix time in seconds or <code>null</code>
+	 */
+	public Long getUntil() {
+		return mUntil;
+	}
+
+	public List<String> getFields() {
+		return mFields;
+	}
+
+	/**
+	 * Get the request parameters of the options. Dates are requested as unix
+	 * time.
+	 * 
+	 * @return New bundle with the parameters
+	 */
+	public Bundle getBundle() {
+		Bundle bundle = new Bundle();
+		bundle.putString(DATE_FORMAT, "U");
+		if (mLimit != null) {
+			bundle.putString(LIMIT, String.valueOf(mLimit));
+		}
+		if (mSince != null) {
+			bundle.putString(SINCE, String.valueOf(mSince));
+		}
+		if (mUntil != null) {
+			bundle.putString(UNTIL, String.valueOf(mUntil));
+		}
+		if (mFields.size() > 0) {
+			bundle.putString(FIELDS, Utils.join(mFields.iterator(), ','));
+		}
+		return bundle;
+	}
+
+	public static class Builder {
+		private Integer mLimit = null;
+		private Long mSince = null;
+		private Long mUntil = null;
+		private final List<String> mFields = new ArrayList<String>();
+
+		public Builder() {
+		}
+
+		/**
+		 * Set the max number of items in one page
+		 * 
+		 * @param limit
+		 */
+		public Builder setLimit(int limit) {
+			mLimit = limit;
+			return this;
+		}
+
+		/**
+		 * Get only items that were created after this time
+		 * 
+		 * @param unixTime
+		 *            Unix time in seconds, like {@link com.sromku.simple.fb.entities.Photo#getCreatedTime()}
+		 */
+		public Builder setSince(long unixTime) {
+			mSince = unixTime;
+			return this;
+		}
+
+		/**
+		 * Get only items that were created after this date
+		 * 
+		 * @param date
+		 */
+		public Builder setSince(Date date) {
+			return setSince(date.getTime() / 1000);
+		}
+
+		/**
+		 * Get only items that were created before this time
+		 * 
+		 * @param unixTime
+		 *            Unix time in seconds
+		 */
+		public Builder setUntil(long unixTime) {
+			mUntil = unixTime;
+			return this;
+		}
+
+		/**
+		 * Get only items that were created before this date
+		 * 
+		 * @param date
+		 */
+		public Builder setUntil(Date date) {
+			return setUntil(date.getTime() / 1000);
+		}
+
+		/**
+		 * Add the field to return. If no fields are added, the default fields
+		 * are returned.
+		 * 
+		 * @param field
+		 *            For example: <code>"id"</code>, <code>"source"</code>
+		 */
+		public Builder addField(String field) {
+			mFields.add(field);
+			return this;
+		}
+
+		public QueryOptions build() {
+			return new QueryOptions(this);
+		}
+	}
+}
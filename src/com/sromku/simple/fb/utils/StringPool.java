@@ -0,0 +1,78 @@
+package com.sromku.simple.fb.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pool of string values that is used while one response is converted into
+ * entities. Values that repeat many times in the same response, like user
+ * names and ids, album types or locales, will share the same {@link String}
+ * instance instead of holding a separate copy for each entity. <br>
+ * <br>
+ * The pool is bound to the converting thread between {@link #begin()} and
+ * {@link #end()}. Outside of this scope {@link #intern(String)} returns the
+ * value as is.
+ */
+public class StringPool {
+
+	private static final ThreadLocal<StringPool> sCurrent = new ThreadLocal<StringPool>();
+
+	private final Map<String, String> mValues = new HashMap<String, String>();
+
+	/**
+	 * Get the pooled instance of the value. If the value wasn't seen before,
+	 * then it is added to the pool and returned as is.
+	 *
+	 * @param value
+	 *            The value. Can be <code>null</code>
+	 * @return The shared instance which equals to the value
+	 */
+	public String get(String value) {
+		if (value == null) {
+			return null;
+		}
+		String pooled = mValues.get(value);
+		if (pooled == null) {
+			mValues.put(value, value);
+			return value;
+		}
+		return pooled;
+	}
+
+	/**
+	 * The number of distinct values in the pool
+	 */
+	public int size() {
+		return mValues.size();
+	}
+
+	/**
+	 * Start pooling string values on the current thread.
+	 */
+	public static void begin() {
+		sCurrent.set(new StringPool());
+	}
+
+	/**
+	 * Stop pooling string values on the current thread and release the pool.
+	 */
+	public static void end() {
+		sCurrent.remove();
+	}
+
+	/**
+	 * Get the pooled instance of the value from the pool of the current
+	 * thread. If there is no pool, the value is returned as is.
+	 *
+	 * @param value
+	 *            The value. Can be <code>null</code>
+	 * @return The shared instance or the value itself
+	 */
+	public static String intern(String value) {
+		StringPool pool = sCurrent.get();
+		if (pool == null) {
+			return value;
+		}
+		return pool.get(value);
+	}
+}
@@ -0,0 +1,117 @@
+package com.sromku.simple.fb.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts the bytes of the Graph responses as they were sent by the server and
+ * after the decompression. The counters are updated by the transports once
+ * each response is read, and can be read from any thread. Uploads of photos
+ * are counted by the bytes that were sent. <br>
+ * <br>
+ * For example, the ratio of the saved bytes:
+ * 
+ * <pre>
+ * TransferStats stats = simpleFacebook.getTransferStats();
+ * long saved = stats.getRawBytes() - stats.getCompressedBytes();
+ * </pre>
+ */
+public class TransferStats {
+
+	private final AtomicLong mResponses = new AtomicLong();
+	private final AtomicLong mCompressedResponses = new AtomicLong();
+	private final AtomicLong mCompressedBytes = new AtomicLong();
+	private final AtomicLong mRawBytes = new AtomicLong();
+	private final AtomicLong mUploads = new AtomicLong();
+	private final AtomicLong mUploadedBytes = new AtomicLong();
+
+	public TransferStats() {
+	}
+
+	/**
+	 * Record the response of one request
+	 * 
+	 * @param graphPath
+	 *            The graph path of the request
+	 * @param encoding
+	 *            The content encoding of the response, or <code>null</code>
+	 *            if it wasn't compressed
+	 * @param compressedBytes
+	 *            The bytes that were received
+	 * @param rawBytes
+	 *            The bytes after the decompression
+	 */
+	public void record(String graphPath, String encoding, long compressedBytes, long rawBytes) {
+		mResponses.incrementAndGet();
+		if (encoding != null) {
+			mCompressedResponses.incrementAndGet();
+		}
+		mCompressedBytes.addAndGet(compressedBytes);
+		mRawBytes.addAndGet(rawBytes);
+		Logger.logInfo(TransferStats.class, graphPath + ": received " + compressedBytes + " bytes of " + rawBytes + (encoding != null ? " (" + encoding + ")" : " (identity)"));
+	}
+
+	/**
+	 * Record the upload of one request
+	 * 
+	 * @param graphPath
+	 *            The graph path of the request
+	 * @param bytes
+	 *            The bytes of the uploaded parameters and attachments
+	 */
+	public void recordUpload(String graphPath, long bytes) {
+		mUploads.incrementAndGet();
+		mUploadedBytes.addAndGet(bytes);
+		Logger.logInfo(TransferStats.class, graphPath + ": sent " + bytes + " bytes");
+	}
+
+	/**
+	 * The number of responses that were read
+	 */
+	public long getResponseCount() {
+		return mResponses.get();
+	}
+
+	/**
+	 * The number of responses that were sent compressed
+	 */
+	public long getCompressedResponseCount() {
+		return mCompressedResponses.get();
+	}
+
+	/**
+	 * The bytes that were received from the server
+	 */
+	public long getCompressedBytes() {
+		return mCompressedBytes.get();
+	}
+
+	/**
+	 * The bytes of the responses after the decompression
+	 */
+	public long getRawBytes() {
+		return mRawBytes.get();
+	}
+
+	/**
+	 * The number of uploads that were sent
+	 */
+	public long getUploadCount() {
+		return mUploads.get();
+	}
+
+	/**
+	 * The bytes of the uploads that were sent
+	 */
+	public long getUploadedBytes() {
+		return mUploadedBytes.get();
+	}
+
+	public void reset() {
+		mResponses.set(0);
+		mCompressedResponses.set(0);
+		mCompressedBytes.set(0);
+		mRawBytes.set(0);
+		mUploads.set(0);
+		mUploadedBytes.set(0);
+	}
+}
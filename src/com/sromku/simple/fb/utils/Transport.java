@@ -0,0 +1,24 @@
+package com.sromku.simple.fb.utils;
+
+import com.facebook.RequestBatch;
+
+/**
+ * Sends the Graph requests of the actions. <br>
+ * <br>
+ * The transport must call the callbacks of the requests and the callbacks of
+ * the batch once the responses are received. Implementations decide on which
+ * thread the requests run and on which thread the callbacks are called.
+ * 
+ * @see AsyncTaskTransport
+ * @see ConnectionTransport
+ */
+public interface Transport {
+
+	/**
+	 * Send the requests of the batch without blocking the caller
+	 * 
+	 * @param batch
+	 *            The requests to send
+	 */
+	void execute(RequestBatch batch);
+}
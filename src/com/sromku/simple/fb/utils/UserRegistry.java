@@ -0,0 +1,156 @@
+package com.sromku.simple.fb.utils;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.sromku.simple.fb.entities.Profile;
+import com.sromku.simple.fb.entities.User;
+
+/**
+ * Registry that holds one {@link User} instance per user id. While a response
+ * is converted, every <code>from</code> and <code>to</code> field of the same
+ * user will return the same instance, so users can be compared by identity
+ * (for example, when grouping photos by author). <br>
+ * <br>
+ * {@link Profile}s that were already fetched can be registered and then will
+ * be reused as the {@link User} of next converted entities. <br>
+ * <br>
+ * By default, a new registry is used for each response. To share users
+ * between responses, set your own registry by
+ * {@link com.sromku.simple.fb.SimpleFacebook#setUserRegistry(UserRegistry)}
+ * and {@link #clear()} it when you don't need it anymore.
+ */
+public class UserRegistry {
+
+	private static final ThreadLocal<UserRegistry> sCurrent = new ThreadLocal<UserRegistry>();
+
+	private final Map<String, User> mUsers = new HashMap<String, User>();
+
+	public UserRegistry() {
+	}
+
+	/**
+	 * Get the registered user
+	 *
+	 * @param id
+	 *            The user id
+	 * @return The user or <code>null</code> if not registered
+	 */
+	public synchronized User get(String id) {
+		return mUsers.get(id);
+	}
+
+	/**
+	 * Get the registered user with this id. If there is no such user, then
+	 * create and register a new one.
+	 *
+	 * @param id
+	 *            The user id
+	 * @param name
+	 *            The user name
+	 * @return The shared user instance
+	 */
+	public synchronized User obtain(String id, String name) {
+		User user = mUsers.get(id);
+		if (user == null) {
+			user = new BasicUser(id, name);
+			mUsers.put(id, user);
+		}
+		return user;
+	}
+
+	/**
+	 * Register the user, like already fetched {@link Profile}. The user will
+	 * replace any previously registered user with the same id.
+	 *
+	 * @param user
+	 */
+	public synchronized void register(User user) {
+		if (user == null || user.getId() == null) {
+			return;
+		}
+		mUsers.put(user.getId(), user);
+	}
+
+	/**
+	 * Register all users
+	 *
+	 * @param users
+	 */
+	public synchronized void register(Collection<? extends User> users) {
+		for (User user : users) {
+			register(user);
+		}
+	}
+
+	/**
+	 * The number of registered users
+	 */
+	public synchronized int size() {
+		return mUsers.size();
+	}
+
+	/**
+	 * Remove all registered users
+	 */
+	public synchronized void clear() {
+		mUsers.clear();
+	}
+
+	/**
+	 * Bind the registry to the current thread for the conversion of one
+	 * response.
+	 *
+	 * @param registry
+	 *            The registry to use. If <code>null</code>, then a new
+	 *            registry is used.
+	 */
+	public static void begin(UserRegistry registry) {
+		sCurrent.set(registry != null ? registry : new UserRegistry());
+	}
+
+	/**
+	 * Release the registry of the current thread.
+	 */
+	public static void end() {
+		sCurrent.remove();
+	}
+
+	/**
+	 * Get the registry of the current thread
+	 *
+	 * @return The registry or <code>null</code> if no response is converted
+	 *         now
+	 */
+	public static UserRegistry current() {
+		return sCurrent.get();
+	}
+
+	/**
+	 * Create the user without registering it
+	 */
+	static User newUser(String id, String name) {
+		return new BasicUser(id, name);
+	}
+
+	private static class BasicUser implements User {
+		private final String mId;
+		private final String mName;
+
+		BasicUser(String id, String name) {
+			mId = id;
+			mName = name;
+		}
+
+		@Override
+		public String getId() {
+			return mId;
+		}
+
+		@Override
+		public String getName() {
+			return mName;
+		}
+	}
+}
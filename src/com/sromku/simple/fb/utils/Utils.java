@@ -149,6 +149,69 @@ public class Utils {
 		return buf.toString();
 	}
 
+	private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+	/**
+	 * Append the value encoded as <code>application/x-www-form-urlencoded</code>
+	 * with UTF-8, the same as {@link java.net.URLEncoder#encode(String, String)}
+	 * does, but without creating intermediate strings and byte arrays.
+	 * 
+	 * @param builder
+	 *            The builder to append to
+	 * @param value
+	 *            The value to encode
+	 * @return The same builder
+	 */
+	public static StringBuilder appendUrlEncoded(StringBuilder builder, CharSequence value) {
+		int length = value.length();
+		for (int i = 0; i < length; i++) {
+			char c = value.charAt(i);
+			if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '.' || c == '-' || c == '*' || c == '_') {
+				builder.append(c);
+			}
+			else if (c == ' ') {
+				builder.append('+');
+			}
+			else {
+				int codePoint = c;
+				if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+					codePoint = Character.toCodePoint(c, value.charAt(++i));
+				}
+				else if (Character.isHighSurrogate(c) || Character.isLowSurrogate(c)) {
+					// broken pair is encoded as '?', like URLEncoder does
+					codePoint = '?';
+				}
+				appendUtf8Escaped(builder, codePoint);
+			}
+		}
+		return builder;
+	}
+
+	private static void appendUtf8Escaped(StringBuilder builder, int codePoint) {
+		if (codePoint < 0x80) {
+			appendEscaped(builder, codePoint);
+		}
+		else if (codePoint < 0x800) {
+			appendEscaped(builder, 0xC0 | (codePoint >> 6));
+			appendEscaped(builder, 0x80 | (codePoint & 0x3F));
+		}
+		else if (codePoint < 0x10000) {
+			appendEscaped(builder, 0xE0 | (codePoint >> 12));
+			appendEscaped(builder, 0x80 | ((codePoint >> 6) & 0x3F));
+			appendEscaped(builder, 0x80 | (codePoint & 0x3F));
+		}
+		else {
+			appendEscaped(builder, 0xF0 | (codePoint >> 18));
+			appendEscaped(builder, 0x80 | ((codePoint >> 12) & 0x3F));
+			appendEscaped(builder, 0x80 | ((codePoint >> 6) & 0x3F));
+			appendEscaped(builder, 0x80 | (codePoint & 0x3F));
+		}
+	}
+
+	private static void appendEscaped(StringBuilder builder, int b) {
+		builder.append('%').append(HEX_DIGITS[(b >> 4) & 0xF]).append(HEX_DIGITS[b & 0xF]);
+	}
+
 	public static <T extends GraphObject> List<T> typedListFromResponse(Response response, Class<T> clazz) {
 		GraphMultiResult multiResult = response.getGraphObjectAs(GraphMultiResult.class);
 		if (multiResult == null) {
@@ -302,6 +365,15 @@ public class Utils {
 		return String.valueOf(graphObject.getProperty(property));
 	}
 
+	/**
+	 * Same as {@link #getPropertyString(GraphObject, String)}, but the value
+	 * is shared through the current {@link StringPool}. Use it for values that
+	 * repeat many times in the same response.
+	 */
+	public static String getPooledPropertyString(GraphObject graphObject, String property) {
+		return StringPool.intern(getPropertyString(graphObject, property));
+	}
+
 	public static Long getPropertyLong(GraphObject graphObject, String property) {
 		if (graphObject == null) {
 			return null;
@@ -366,6 +438,18 @@ public class Utils {
 		return graphObject.getPropertyAs(property, GraphObject.class);
 	}
 
+	/**
+	 * Get the id of the published post from the response of publish request
+	 * 
+	 * @param response
+	 * @return The id, or <code>"0"</code> if the response has no id
+	 */
+	public static String getPostId(Response response) {
+		GraphObject graphObject = response.getGraphObject();
+		Object id = graphObject != null ? graphObject.getProperty("id") : null;
+		return id != null ? String.valueOf(id) : "0";
+	}
+
 	public static User createUser(GraphObject graphObject, String parent) {
 		if (graphObject == null) {
 			return null;
@@ -378,22 +462,14 @@ public class Utils {
 	}
 
 	public static User createUser(GraphObject graphObject) {
-		final String id = String.valueOf(graphObject.getProperty("id"));
-		final String name = String.valueOf(graphObject.getProperty("name"));
-
-		User user = new User() {
-			@Override
-			public String getName() {
-				return name;
-			}
+		String id = getPooledPropertyString(graphObject, "id");
+		String name = getPooledPropertyString(graphObject, "name");
 
-			@Override
-			public String getId() {
-				return id;
-			}
-		};
-
-		return user;
+		UserRegistry registry = UserRegistry.current();
+		if (registry != null) {
+			return registry.obtain(id, name);
+		}
+		return UserRegistry.newUser(id, name);
 	}
 
 }